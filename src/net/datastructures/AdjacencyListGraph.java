@@ -160,10 +160,11 @@ public class AdjacencyListGraph<V,E> implements Graph<V,E> {
     return (MyEdge<E>) e;
   }
 
-  /** Implementation of a decorable position by means of a hash
-   * table. */
+  /** Implementation of a decorable position by means of a compact
+   * map, which keeps the few decorations set by graph algorithms in
+   * small inline arrays. */
   protected static class MyPosition<T>
-    extends HashTableMap<Object,Object> implements DecorablePosition<T> {
+    extends CompactMap<Object,Object> implements DecorablePosition<T> {
     /** The element stored at this position. */
     protected T elem;
     /** Returns the element stored at this position. */
@@ -113,6 +113,13 @@ public class ArrayListCompleteBinaryTree<E>
       children.addLast(right(v));
     return children;
   }
+  /** Returns the node of index i in a level numbering from 1 at the
+   * root, so that the children of node i are nodes 2i and 2i + 1. */
+  public Position<E> position(int i) throws BoundaryViolationException {
+    if (i < 1 || i > size())
+      throw new BoundaryViolationException("No node of index " + i);
+    return T.get(i);
+  }
   /** Returns an iterable collection of all the nodes in the tree. */
   public Iterable<Position<E>> positions() {
     ArrayList<Position<E>> P = new ArrayList<Position<E>>();
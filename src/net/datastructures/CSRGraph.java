@@ -0,0 +1,372 @@
+package net.datastructures;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+  * An immutable realization of a graph in compressed sparse row (CSR)
+  * form, meant for graphs that are built once and then queried many
+  * times.  Vertices and edges are numbered from 0, and the incidences
+  * of vertex <tt>v</tt> occupy the index range
+  * <tt>incidenceStart(v)</tt> to <tt>incidenceEnd(v) - 1</tt> of flat
+  * arrays giving, for each incidence, the opposite vertex, the edge and
+  * the edge weight.  A CSR graph is obtained from any other graph with
+  * {@link #snapshot(Graph,Object) snapshot}.
+  *
+  * <p>The class implements the {@link Graph} interface, so the generic
+  * algorithms of this package (DFS and its subclasses, Dijkstra) run on
+  * it unchanged: its vertices and edges are decorable positions.  The
+  * structure of the graph cannot be modified, and the insertion and
+  * removal methods throw {@link UnsupportedOperationException}.
+  *
+  * <p>Hot loops can avoid the positional interface altogether and walk
+  * the neighbors of a vertex without allocating any object:
+  *
+  * <pre>
+  *   for (int i = g.incidenceStart(u); i &lt; g.incidenceEnd(u); i++) {
+  *     int z = g.target(i);	// id of the opposite vertex
+  *     int w = g.weight(i);	// weight of the edge
+  *     ...
+  *   }
+  * </pre>
+  *
+  * @see AdjacencyListGraph
+  */
+public class CSRGraph<V,E> implements Graph<V,E> {
+  protected CSRVertex<V>[] verts;	// vertices indexed by id
+  protected CSREdge<E>[] edgs;	// edges indexed by id
+  protected int[] ends;		// end vertices of edge j at 2j and 2j+1
+  protected int[] offsets;	// incidences of v are offsets[v]..offsets[v+1]-1
+  protected int[] targets;	// opposite vertex of each incidence
+  protected int[] incEdges;	// edge of each incidence
+  protected int[] incWeights;	// weight of each incidence, or null
+  protected int[] weights;	// weight of each edge, or null
+
+  /** Creates a CSR graph from its arrays; use {@link
+   * #snapshot(Graph,Object) snapshot} to build one. */
+  protected CSRGraph(CSRVertex<V>[] verts, CSREdge<E>[] edgs, int[] ends,
+		     int[] offsets, int[] targets, int[] incEdges,
+		     int[] weights) {
+    this.verts = verts;
+    this.edgs = edgs;
+    this.ends = ends;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.incEdges = incEdges;
+    this.weights = weights;
+    if (weights != null) {
+      incWeights = new int[incEdges.length];
+      for (int i = 0; i < incEdges.length; i++)
+	incWeights[i] = weights[incEdges[i]];
+    }
+  }
+
+  /** Returns a CSR copy of the given graph, without edge weights.
+   * @see #snapshot(Graph,Object) */
+  public static <V,E> CSRGraph<V,E> snapshot(Graph<V,E> g) {
+    return snapshot(g, null);
+  }
+  /** Returns a CSR copy of the given graph.  The elements and the
+   * decorations of the vertices and edges are copied, and the incidences
+   * of each vertex keep the order of <tt>g.incidentEdges</tt>.  If
+   * <tt>weight</tt> is not null, it is the decoration key of the integer
+   * edge weights, which are also stored in primitive arrays; edges
+   * without that decoration get weight 0.
+   * @param g Input graph
+   * @param weight Weight decoration object, or null */
+  public static <V,E> CSRGraph<V,E> snapshot(Graph<V,E> g, Object weight) {
+    int n = g.numVertices();
+    int m = g.numEdges();
+    Object ID = new Object();	// temporary decoration for ids
+    CSRVertex<V>[] verts = (CSRVertex<V>[]) new CSRVertex[n];
+    CSREdge<E>[] edgs = (CSREdge<E>[]) new CSREdge[m];
+    int[] ends = new int[2*m];
+    int[] weights = (weight == null) ? null : new int[m];
+    int i = 0;
+    for (Vertex<V> v : g.vertices()) {
+      verts[i] = new CSRVertex<V>(v.element(), i);
+      copyDecorations(v, verts[i]);
+      v.put(ID, i++);
+    }
+    int j = 0;
+    for (Edge<E> e : g.edges()) {
+      edgs[j] = new CSREdge<E>(e.element(), j);
+      copyDecorations(e, edgs[j]);
+      Vertex[] endv = g.endVertices(e);
+      ends[2*j] = (Integer) endv[0].get(ID);
+      ends[2*j+1] = (Integer) endv[1].get(ID);
+      if (weight != null) {
+	Object w = e.get(weight);
+	weights[j] = (w == null) ? 0 : (Integer) w;
+      }
+      e.put(ID, j++);
+    }
+    int[] offsets = new int[n+1];
+    int[] targets = new int[2*m];
+    int[] incEdges = new int[2*m];
+    int k = 0;
+    i = 0;
+    for (Vertex<V> v : g.vertices()) {
+      offsets[i] = k;
+      for (Edge<E> e : g.incidentEdges(v)) {
+	if (k == targets.length) {	// more incidences than 2m
+	  targets = grow(targets);
+	  incEdges = grow(incEdges);
+	}
+	int ej = (Integer) e.get(ID);
+	incEdges[k] = ej;
+	targets[k++] = (ends[2*ej] == i) ? ends[2*ej+1] : ends[2*ej];
+      }
+      i++;
+    }
+    offsets[n] = k;
+    if (k < targets.length) {	// fewer incidences than 2m
+      targets = trim(targets, k);
+      incEdges = trim(incEdges, k);
+    }
+    for (Vertex<V> v : g.vertices()) v.remove(ID);
+    for (Edge<E> e : g.edges()) e.remove(ID);
+    return new CSRGraph<V,E>(verts, edgs, ends, offsets, targets,
+			     incEdges, weights);
+  }
+  /** Copies the decorations of one position onto another. */
+  protected static void copyDecorations(DecorablePosition<?> from,
+					DecorablePosition<?> to) {
+    for (Entry<Object,Object> d : from.entries())
+      to.put(d.getKey(), d.getValue());
+  }
+  private static int[] grow(int[] a) {
+    int[] b = new int[Math.max(4, 2*a.length)];
+    System.arraycopy(a, 0, b, 0, a.length);
+    return b;
+  }
+  private static int[] trim(int[] a, int len) {
+    int[] b = new int[len];
+    System.arraycopy(a, 0, b, 0, len);
+    return b;
+  }
+
+  // Primitive interface, working on vertex, edge and incidence ids
+
+  /** Returns the id of a vertex of this graph. */
+  public int id(Vertex<V> v) throws InvalidPositionException {
+    return checkVertex(v).id;
+  }
+  /** Returns the id of an edge of this graph. */
+  public int id(Edge<E> e) throws InvalidPositionException {
+    return checkEdge(e).id;
+  }
+  /** Returns the vertex with the given id. */
+  public Vertex<V> vertex(int v) { return verts[v]; }
+  /** Returns the edge with the given id. */
+  public Edge<E> edge(int e) { return edgs[e]; }
+  /** Returns the degree of the vertex with the given id. */
+  public int degree(int v) { return offsets[v+1] - offsets[v]; }
+  /** Returns the index of the first incidence of a vertex. */
+  public int incidenceStart(int v) { return offsets[v]; }
+  /** Returns one plus the index of the last incidence of a vertex. */
+  public int incidenceEnd(int v) { return offsets[v+1]; }
+  /** Returns the id of the opposite vertex of an incidence. */
+  public int target(int i) { return targets[i]; }
+  /** Returns the id of the edge of an incidence. */
+  public int incidentEdge(int i) { return incEdges[i]; }
+  /** Returns the weight of the edge of an incidence.
+   * @throws IllegalStateException if the graph has no weights */
+  public int weight(int i) {
+    if (incWeights == null)
+      throw new IllegalStateException("Graph has no edge weights");
+    return incWeights[i];
+  }
+  /** Returns the weight of the edge with the given id.
+   * @throws IllegalStateException if the graph has no weights */
+  public int edgeWeight(int e) {
+    if (weights == null)
+      throw new IllegalStateException("Graph has no edge weights");
+    return weights[e];
+  }
+  /** Returns whether the snapshot stored edge weights. */
+  public boolean hasWeights() { return weights != null; }
+  /** Returns the id of one end vertex (0 or 1) of an edge. */
+  public int endVertex(int e, int which) { return ends[2*e + which]; }
+
+  // Methods of the Graph interface
+
+  /** Returns the number of vertices of the graph */
+  public int numVertices() { return verts.length; }
+  /** Returns the number of edges of the graph */
+  public int numEdges() { return edgs.length; }
+  /** Returns the vertices of the graph in id order */
+  public Iterable<Vertex<V>> vertices() {
+    return new ArrayIterable<Vertex<V>>(verts);
+  }
+  /** Returns the edges of the graph in id order */
+  public Iterable<Edge<E>> edges() {
+    return new ArrayIterable<Edge<E>>(edgs);
+  }
+  /** Replaces the element of a given vertex with a new element and
+      returns the old element */
+  public V replace(Vertex<V> p, V o) throws InvalidPositionException {
+    CSRVertex<V> vv = checkVertex(p);
+    V temp = vv.elem;
+    vv.elem = o;
+    return temp;
+  }
+  /** Replaces the element of a given edge with a new element and
+      returns the old element */
+  public E replace(Edge<E> p, E o) throws InvalidPositionException {
+    CSREdge<E> ee = checkEdge(p);
+    E temp = ee.elem;
+    ee.elem = o;
+    return temp;
+  }
+  /** Returns the edges incident on a vertex */
+  public Iterable<Edge<E>> incidentEdges(Vertex<V> v)
+    throws InvalidPositionException {
+    final int id = checkVertex(v).id;
+    return new Iterable<Edge<E>>() {
+      public Iterator<Edge<E>> iterator() {
+	return new IncidenceIterator(offsets[id], offsets[id+1]);
+      }
+    };
+  }
+  /** Returns the end vertices of an edge in an array of length 2 */
+  public Vertex<V>[] endVertices(Edge<E> e) throws InvalidPositionException {
+    int id = checkEdge(e).id;
+    Vertex<V>[] endv = (Vertex<V>[]) new Vertex[2];
+    endv[0] = verts[ends[2*id]];
+    endv[1] = verts[ends[2*id+1]];
+    return endv;
+  }
+  /** Returns the other end vertex of an incident edge */
+  public Vertex<V> opposite(Vertex<V> v, Edge<E> e)
+    throws InvalidPositionException {
+    int vid = checkVertex(v).id;
+    int eid = checkEdge(e).id;
+    if (ends[2*eid] == vid)
+      return verts[ends[2*eid+1]];
+    else if (ends[2*eid+1] == vid)
+      return verts[ends[2*eid]];
+    else
+      throw new InvalidPositionException("No such vertex exists");
+  }
+  /** Tests whether two vertices are adjacent */
+  public boolean areAdjacent(Vertex<V> u, Vertex<V> v)
+    throws InvalidPositionException {
+    int uid = checkVertex(u).id;
+    int vid = checkVertex(v).id;
+    if (degree(uid) > degree(vid)) {	// search the smaller incidence range
+      int t = uid; uid = vid; vid = t;
+    }
+    for (int i = offsets[uid]; i < offsets[uid+1]; i++)
+      if (targets[i] == vid)
+	return true;
+    return false;
+  }
+  /** Not supported: the graph is immutable. */
+  public Vertex<V> insertVertex(V o) {
+    throw new UnsupportedOperationException("CSRGraph is immutable");
+  }
+  /** Not supported: the graph is immutable. */
+  public Edge<E> insertEdge(Vertex<V> u, Vertex<V> v, E o) {
+    throw new UnsupportedOperationException("CSRGraph is immutable");
+  }
+  /** Not supported: the graph is immutable. */
+  public V removeVertex(Vertex<V> v) {
+    throw new UnsupportedOperationException("CSRGraph is immutable");
+  }
+  /** Not supported: the graph is immutable. */
+  public E removeEdge(Edge<E> e) {
+    throw new UnsupportedOperationException("CSRGraph is immutable");
+  }
+
+  /** Determines whether a given vertex belongs to this graph. */
+  protected CSRVertex<V> checkVertex(Vertex<V> v)
+    throws InvalidPositionException {
+    if (v == null || !(v instanceof CSRVertex))
+      throw new InvalidPositionException("Vertex is invalid");
+    CSRVertex<V> vv = (CSRVertex<V>) v;
+    if (vv.id >= verts.length || verts[vv.id] != vv)
+      throw new InvalidPositionException("Vertex belongs to another graph");
+    return vv;
+  }
+  /** Determines whether a given edge belongs to this graph. */
+  protected CSREdge<E> checkEdge(Edge<E> e)
+    throws InvalidPositionException {
+    if (e == null || !(e instanceof CSREdge))
+      throw new InvalidPositionException("Edge is invalid");
+    CSREdge<E> ee = (CSREdge<E>) e;
+    if (ee.id >= edgs.length || edgs[ee.id] != ee)
+      throw new InvalidPositionException("Edge belongs to another graph");
+    return ee;
+  }
+
+  /** Returns a string representation of the vertex and edge lists,
+   * separated by a newline. */
+  public String toString() {
+    return java.util.Arrays.toString(verts) + "\n"
+      + java.util.Arrays.toString(edgs);
+  }
+
+  /** Iterator over the edges of a range of incidences. */
+  protected class IncidenceIterator implements Iterator<Edge<E>> {
+    protected int cursor, end;
+    IncidenceIterator(int start, int end) {
+      cursor = start;
+      this.end = end;
+    }
+    public boolean hasNext() { return cursor < end; }
+    public Edge<E> next() throws NoSuchElementException {
+      if (cursor >= end)
+	throw new NoSuchElementException("No next edge");
+      return edgs[incEdges[cursor++]];
+    }
+    public void remove() throws UnsupportedOperationException {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+
+  /** Read-only iterable view of an array. */
+  protected static class ArrayIterable<T> implements Iterable<T> {
+    protected T[] a;
+    ArrayIterable(T[] a) { this.a = a; }
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+	int cursor = 0;
+	public boolean hasNext() { return cursor < a.length; }
+	public T next() throws NoSuchElementException {
+	  if (cursor >= a.length)
+	    throw new NoSuchElementException("No next element");
+	  return a[cursor++];
+	}
+	public void remove() throws UnsupportedOperationException {
+	  throw new UnsupportedOperationException("remove");
+	}
+      };
+    }
+  }
+
+  /** A vertex of a CSR graph: a decorable position with an id. */
+  protected static class CSRVertex<V>
+    extends CompactMap<Object,Object> implements Vertex<V> {
+    protected V elem;
+    protected final int id;
+    CSRVertex(V o, int id) {
+      elem = o;
+      this.id = id;
+    }
+    public V element() { return elem; }
+    public String toString() { return String.valueOf(elem); }
+  }
+
+  /** An edge of a CSR graph: a decorable position with an id. */
+  protected static class CSREdge<E>
+    extends CompactMap<Object,Object> implements Edge<E> {
+    protected E elem;
+    protected final int id;
+    CSREdge(E o, int id) {
+      elem = o;
+      this.id = id;
+    }
+    public E element() { return elem; }
+    public String toString() { return String.valueOf(elem); }
+  }
+}
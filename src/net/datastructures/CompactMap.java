@@ -0,0 +1,183 @@
+package net.datastructures;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+  * A map tuned for the handful of entries that graph algorithms attach
+  * as decorations to vertices and edges.  Up to {@link #THRESHOLD}
+  * entries are kept in two small parallel arrays of keys and values
+  * that are searched linearly.  Adding an entry beyond the threshold
+  * moves all the entries into a {@link HashTableMap}, which is used from
+  * then on.  No arrays are allocated until the first entry is added, so
+  * an undecorated position costs only a few words of memory.
+  *
+  * <p>As those of HashTableMap, the iterables of keys, values and
+  * entries are views that copy nothing, whose iterators fail fast if an
+  * entry is added or removed meanwhile.
+  *
+  * @see AdjacencyListGraph
+  */
+public class CompactMap<K,V> implements Map<K,V> {
+  /** Maximum number of entries stored in the inline arrays. */
+  public static final int THRESHOLD = 8;
+  /** Length of the inline arrays when they are first allocated. */
+  protected static final int INITIAL_SLOTS = 4;
+  protected Object[] slotKeys;	// inline keys, null until the first put
+  protected Object[] slotValues;	// inline values, parallel to slotKeys
+  protected int n = 0;		// number of inline entries
+  protected HashTableMap<K,V> table;	// overflow table, null while small
+  protected int modCount = 0;	// number of inline additions and removals
+  /** Creates an empty map. */
+  public CompactMap() { }
+  /** Determines whether a key is valid. */
+  protected void checkKey(K k) {
+    if (k == null) throw new InvalidKeyException("Invalid key: null.");
+  }
+  /** Returns the index of the given key in the inline arrays, or -1. */
+  protected int indexOf(K key) {
+    for (int i=0; i<n; i++) {
+      Object k = slotKeys[i];
+      if (k == key || key.equals(k))
+	return i;
+    }
+    return -1;
+  }
+  /** Returns the number of entries in the map. */
+  public int size() { return (table != null) ? table.size() : n; }
+  /** Returns whether the map is empty. */
+  public boolean isEmpty() { return size() == 0; }
+  /** Returns the value associated with a key. */
+  public V get(K key) throws InvalidKeyException {
+    if (table != null) return table.get(key);
+    checkKey(key);
+    int i = indexOf(key);
+    if (i < 0) return null;
+    return (V) slotValues[i];
+  }
+  /** Puts a key-value pair in the map, replacing a previous one if it
+    * exists. */
+  public V put(K key, V value) throws InvalidKeyException {
+    if (table != null) return table.put(key, value);
+    checkKey(key);
+    int i = indexOf(key);
+    if (i >= 0) {	// this key has a previous value
+      V old = (V) slotValues[i];
+      slotValues[i] = value;
+      return old;
+    }
+    if (n == THRESHOLD) {	// too many entries for a linear search
+      upgrade();
+      return table.put(key, value);
+    }
+    if (slotKeys == null) {
+      slotKeys = new Object[INITIAL_SLOTS];
+      slotValues = new Object[INITIAL_SLOTS];
+    }
+    else if (n == slotKeys.length) {
+      int cap = Math.min(2*n, THRESHOLD);
+      Object[] k = new Object[cap];
+      Object[] v = new Object[cap];
+      System.arraycopy(slotKeys, 0, k, 0, n);
+      System.arraycopy(slotValues, 0, v, 0, n);
+      slotKeys = k;
+      slotValues = v;
+    }
+    slotKeys[n] = key;
+    slotValues[n] = value;
+    n++;
+    modCount++;
+    return null;	// there was no previous value
+  }
+  /** Removes the key-value pair with a specified key. */
+  public V remove(K key) throws InvalidKeyException {
+    if (table != null) return table.remove(key);
+    checkKey(key);
+    int i = indexOf(key);
+    if (i < 0) return null;	// nothing to remove
+    V toReturn = (V) slotValues[i];
+    n--;
+    slotKeys[i] = slotKeys[n];	// move the last entry into the hole
+    slotValues[i] = slotValues[n];
+    slotKeys[n] = null;
+    slotValues[n] = null;
+    modCount++;
+    return toReturn;
+  }
+  /** Moves the inline entries into a hash table. */
+  protected void upgrade() {
+    table = new HashTableMap<K,V>(4*THRESHOLD);
+    for (int i=0; i<n; i++)
+      table.put((K) slotKeys[i], (V) slotValues[i]);
+    slotKeys = null;
+    slotValues = null;
+    n = 0;
+    modCount++;
+  }
+  /** Returns an iterable object containing all of the keys. */
+  public Iterable<K> keys() {
+    return new Iterable<K>() {
+      public Iterator<K> iterator() {
+	if (table != null) return table.keys().iterator();
+	return new SlotIterator<K>() {
+	  K at(int i) { return (K) slotKeys[i]; }
+	};
+      }
+    };
+  }
+  /** Returns an iterable object containing all of the values. */
+  public Iterable<V> values() {
+    return new Iterable<V>() {
+      public Iterator<V> iterator() {
+	if (table != null) return table.values().iterator();
+	return new SlotIterator<V>() {
+	  V at(int i) { return (V) slotValues[i]; }
+	};
+      }
+    };
+  }
+  /** Returns an iterable object containing all of the entries. */
+  public Iterable<Entry<K,V>> entries() {
+    return new Iterable<Entry<K,V>>() {
+      public Iterator<Entry<K,V>> iterator() {
+	if (table != null) return table.entries().iterator();
+	return new SlotIterator<Entry<K,V>>() {
+	  Entry<K,V> at(int i) {
+	    return new HashTableMap.HashEntry<K,V>((K) slotKeys[i],
+						   (V) slotValues[i]);
+	  }
+	};
+      }
+    };
+  }
+  /** Applies an action to the key and value of every entry, allocating
+   * nothing.  The map must not be modified meanwhile. */
+  public void forEach(BiConsumer<? super K,? super V> action) {
+    if (table != null) {
+      table.forEach(action);
+      return;
+    }
+    int expected = modCount;
+    for (int i=0; i<n; i++)
+      action.accept((K) slotKeys[i], (V) slotValues[i]);
+    if (modCount != expected)
+      throw new ConcurrentModificationException();
+  }
+
+  /** Fail-fast iterator over the inline entries. */
+  protected abstract class SlotIterator<T> implements Iterator<T> {
+    final int expectedModCount = modCount;
+    int next = 0;	// index of the next inline entry
+    /** Returns the element of the iteration for inline entry i. */
+    abstract T at(int i);
+    public boolean hasNext() { return next < n; }
+    public T next() {
+      if (modCount != expectedModCount)
+	throw new ConcurrentModificationException();
+      if (next >= n) throw new NoSuchElementException();
+      return at(next++);
+    }
+    public void remove() { throw new UnsupportedOperationException(); }
+  }
+}
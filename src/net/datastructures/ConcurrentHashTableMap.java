@@ -0,0 +1,280 @@
+package net.datastructures;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+  * A hash table that many threads may use at once.  The table is split
+  * into segments, chosen by the high bits of the mixed hash code of a
+  * key, and each segment is a separately chained hash table with a lock
+  * of its own, so that threads updating different segments do not wait
+  * for each other.  Searches take no lock at all: the bucket array of a
+  * segment is read through volatile accesses, the nodes of a chain are
+  * immutable except for their volatile values, and an update builds new
+  * nodes before publishing them, so a reader always sees a consistent
+  * chain.  A segment doubles its bucket array on its own, under its
+  * lock, when its load factor would exceed 0.75, while searches go on
+  * in the old array and the other segments are untouched.
+  *
+  * <p>Besides the operations of {@link Map}, {@link #putIfAbsent
+  * putIfAbsent}, {@link #compute compute} and {@link #computeIfAbsent
+  * computeIfAbsent} are atomic.  Keys and values may not be null.  The
+  * size and the iterables of keys, values and entries are snapshots that
+  * may miss the updates made while they are computed.
+  *
+  * @see HashTableMap
+  */
+public class ConcurrentHashTableMap<K,V> implements Map<K,V> {
+  /** Default number of segments. */
+  public static final int DEFAULT_SEGMENTS = 16;
+  protected final Segment<K,V>[] segments;
+  protected final int segmentShift;	// shift of a hash to its segment
+  /** Creates a table with 16 segments. */
+  public ConcurrentHashTableMap() { this(16, DEFAULT_SEGMENTS); }
+  /** Creates a table that can hold about the given number of entries
+   * without growing, with about the given number of segments, rounded
+   * up to a power of two.
+   * @throws IllegalArgumentException if a parameter is not positive */
+  public ConcurrentHashTableMap(int expected, int concurrency) {
+    if (expected < 1 || concurrency < 1)
+      throw new IllegalArgumentException("Parameters must be positive");
+    int s = 1, shift = 32;
+    while (s < concurrency && s < (1 << 16)) {
+      s <<= 1;
+      shift--;
+    }
+    segmentShift = shift;
+    segments = (Segment<K,V>[]) new Segment[s];
+    int cap = 2;
+    while (cap * 3 / 4 < expected / s && cap < (1 << 30))
+      cap <<= 1;
+    for (int i = 0; i < s; i++)
+      segments[i] = new Segment<K,V>(cap);
+  }
+
+  /** Returns the number of entries in the table. */
+  public int size() {
+    long n = 0;
+    for (Segment<K,V> s : segments)
+      n += s.count;
+    return (int) Math.min(n, Integer.MAX_VALUE);
+  }
+  /** Returns whether the table is empty. */
+  public boolean isEmpty() {
+    for (Segment<K,V> s : segments)
+      if (s.count != 0) return false;
+    return true;
+  }
+  /** Returns the value associated with a key, or null if none, without
+   * locking. */
+  public V get(K key) throws InvalidKeyException {
+    checkKey(key);
+    int h = FlatHashMap.mix(key.hashCode());
+    return segmentFor(h).get(key, h);
+  }
+  /** Puts a key-value pair in the map, replacing the previous one if it
+   * exists, and returns the previous value or null. */
+  public V put(K key, V value) throws InvalidKeyException {
+    checkKey(key);
+    checkValue(value);
+    int h = FlatHashMap.mix(key.hashCode());
+    return segmentFor(h).put(key, h, value, false);
+  }
+  /** Puts a key-value pair in the map if the key has no value, and
+   * returns the value it had, or null if it had none. */
+  public V putIfAbsent(K key, V value) throws InvalidKeyException {
+    checkKey(key);
+    checkValue(value);
+    int h = FlatHashMap.mix(key.hashCode());
+    return segmentFor(h).put(key, h, value, true);
+  }
+  /** Removes the key-value pair with a specified key and returns its
+   * value, or null if none. */
+  public V remove(K key) throws InvalidKeyException {
+    checkKey(key);
+    int h = FlatHashMap.mix(key.hashCode());
+    return segmentFor(h).compute(key, h, null, null);
+  }
+  /** Atomically replaces the value of a key, or null if it has none, by
+   * the result of a function of the key and that value; a null result
+   * removes the key.  Returns the new value.  The function runs with
+   * the segment locked and must not use this map. */
+  public V compute(K key, BiFunction<? super K,? super V,? extends V> f)
+    throws InvalidKeyException {
+    checkKey(key);
+    int h = FlatHashMap.mix(key.hashCode());
+    return segmentFor(h).compute(key, h, f, null);
+  }
+  /** Returns the value of a key; if it has none, atomically puts the
+   * result of a function of the key, unless it is null, and returns it.
+   * The function runs with the segment locked and must not use this
+   * map. */
+  public V computeIfAbsent(K key, Function<? super K,? extends V> f)
+    throws InvalidKeyException {
+    checkKey(key);
+    int h = FlatHashMap.mix(key.hashCode());
+    Segment<K,V> s = segmentFor(h);
+    V v = s.get(key, h);	// no lock if present
+    return (v != null) ? v : s.compute(key, h, null, f);
+  }
+
+  /** Returns a snapshot of the keys. */
+  public Iterable<K> keys() {
+    PositionList<K> keys = new NodePositionList<K>();
+    for (Entry<K,V> e : entries())
+      keys.addLast(e.getKey());
+    return keys;
+  }
+  /** Returns a snapshot of the values. */
+  public Iterable<V> values() {
+    PositionList<V> values = new NodePositionList<V>();
+    for (Entry<K,V> e : entries())
+      values.addLast(e.getValue());
+    return values;
+  }
+  /** Returns a snapshot of the entries. */
+  public Iterable<Entry<K,V>> entries() {
+    PositionList<Entry<K,V>> entries = new NodePositionList<Entry<K,V>>();
+    for (Segment<K,V> s : segments) {
+      AtomicReferenceArray<HashNode<K,V>> t = s.table;
+      for (int i = 0; i < t.length(); i++)
+	for (HashNode<K,V> e = t.get(i); e != null; e = e.next)
+	  entries.addLast(new HashTableMap.HashEntry<K,V>(e.key, e.value));
+    }
+    return entries;
+  }
+
+  /** Determines whether a key is valid. */
+  protected void checkKey(K k) {
+    if (k == null) throw new InvalidKeyException("Invalid key: null.");
+  }
+  /** Determines whether a value is valid. */
+  protected void checkValue(V v) {
+    if (v == null) throw new IllegalArgumentException("Null value");
+  }
+  /** Returns the segment of a mixed hash code. */
+  protected Segment<K,V> segmentFor(int h) {
+    return segments[(segmentShift == 32) ? 0 : h >>> segmentShift];
+  }
+
+  /** Node of a chain; only its value changes once it is published. */
+  protected static class HashNode<K,V> {
+    final K key;
+    final int hash;	// mixed hash code of the key
+    final HashNode<K,V> next;
+    volatile V value;
+    HashNode(K k, int h, V v, HashNode<K,V> next) {
+      key = k;
+      hash = h;
+      value = v;
+      this.next = next;
+    }
+  }
+
+  /**
+   * Segment of the table: a chained hash table whose updates hold its
+   * lock and whose searches take none.
+   */
+  protected static class Segment<K,V> extends ReentrantLock {
+    private static final long serialVersionUID = 1L;
+    volatile AtomicReferenceArray<HashNode<K,V>> table;
+    volatile int count;	// number of entries
+    int threshold;	// count at which the table grows
+    Segment(int cap) { setTable(new AtomicReferenceArray<HashNode<K,V>>(cap)); }
+    void setTable(AtomicReferenceArray<HashNode<K,V>> t) {
+      threshold = t.length() * 3 / 4;
+      table = t;
+    }
+    /** Returns the node of a key in a chain, or null. */
+    HashNode<K,V> find(HashNode<K,V> e, K key, int h) {
+      for (; e != null; e = e.next)
+	if (e.hash == h && (e.key == key || key.equals(e.key)))
+	  return e;
+      return null;
+    }
+    V get(K key, int h) {
+      AtomicReferenceArray<HashNode<K,V>> t = table;
+      HashNode<K,V> e = find(t.get(h & (t.length() - 1)), key, h);
+      return (e == null) ? null : e.value;
+    }
+    /** Sets the value of a key, unless onlyIfAbsent and it has one, and
+     * returns its previous value or null. */
+    V put(K key, int h, V value, boolean onlyIfAbsent) {
+      lock();
+      try {
+	AtomicReferenceArray<HashNode<K,V>> t = table;
+	int i = h & (t.length() - 1);
+	HashNode<K,V> first = t.get(i);
+	HashNode<K,V> e = find(first, key, h);
+	if (e != null) {
+	  V old = e.value;
+	  if (!onlyIfAbsent) e.value = value;
+	  return old;
+	}
+	insert(t, i, first, key, h, value);
+	return null;
+      } finally {
+	unlock();
+      }
+    }
+    /** Replaces the value of a key by f(key, value), or by g(key) if it
+     * has none; a missing function or a null result removes the key.
+     * Returns the new value, or the old one if there is no function. */
+    V compute(K key, int h, BiFunction<? super K,? super V,? extends V> f,
+	      Function<? super K,? extends V> g) {
+      lock();
+      try {
+	AtomicReferenceArray<HashNode<K,V>> t = table;
+	int i = h & (t.length() - 1);
+	HashNode<K,V> first = t.get(i);
+	HashNode<K,V> e = find(first, key, h);
+	V old = (e == null) ? null : e.value;
+	V v;
+	if (f != null) v = f.apply(key, old);
+	else if (g != null) v = (old == null) ? g.apply(key) : old;
+	else v = null;	// a removal
+	if (e != null && v != null)
+	  e.value = v;
+	else if (e != null) {	// copy the nodes before e, which is dropped
+	  HashNode<K,V> chain = e.next;
+	  for (HashNode<K,V> p = first; p != e; p = p.next)
+	    chain = new HashNode<K,V>(p.key, p.hash, p.value, chain);
+	  t.set(i, chain);
+	  count = count - 1;
+	}
+	else if (v != null)
+	  insert(t, i, first, key, h, v);
+	return (f == null && g == null) ? old : v;
+      } finally {
+	unlock();
+      }
+    }
+    /** Adds a new key at the head of chain i, growing the table first if
+     * needed; the lock is held. */
+    void insert(AtomicReferenceArray<HashNode<K,V>> t, int i,
+		HashNode<K,V> first, K key, int h, V value) {
+      if (count >= threshold && t.length() < (1 << 30)) {
+	t = grow(t);
+	i = h & (t.length() - 1);
+	first = t.get(i);
+      }
+      t.set(i, new HashNode<K,V>(key, h, value, first));
+      count = count + 1;
+    }
+    /** Publishes a copy of the table with twice the buckets and returns
+     * it; searches in the old table go on undisturbed. */
+    AtomicReferenceArray<HashNode<K,V>> grow(AtomicReferenceArray<HashNode<K,V>> t) {
+      int cap = 2 * t.length();
+      AtomicReferenceArray<HashNode<K,V>> nt =
+	new AtomicReferenceArray<HashNode<K,V>>(cap);
+      for (int i = 0; i < t.length(); i++)
+	for (HashNode<K,V> e = t.get(i); e != null; e = e.next) {
+	  int j = e.hash & (cap - 1);
+	  nt.set(j, new HashNode<K,V>(e.key, e.hash, e.value, nt.get(j)));
+	}
+      setTable(nt);
+      return nt;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package net.datastructures;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Comparator that counts the comparisons it makes and delegates them to
+ * another comparator.  The count is kept atomically, so it stays exact
+ * when a parallel sort calls the comparator from several threads.
+ */
+public class CountingComparator<E> implements Comparator<E> {
+  protected final Comparator<E> comp;	// comparator doing the work
+  protected final AtomicLong count = new AtomicLong();
+  /** Creates a counting comparator based on the natural ordering. */
+  public CountingComparator() {
+    this(new DefaultComparator<E>());
+  }
+  /** Creates a counting comparator delegating to the given one. */
+  public CountingComparator(Comparator<E> c) {
+    comp = c;
+  }
+  /** Compares two elements with the underlying comparator. */
+  public int compare(E a, E b) {
+    count.incrementAndGet();
+    return comp.compare(a, b);
+  }
+  /** Returns the number of comparisons since creation or the last reset. */
+  public long getCount() { return count.get(); }
+  /** Sets the number of comparisons back to zero. */
+  public void reset() { count.set(0); }
+}
@@ -0,0 +1,431 @@
+package net.datastructures;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+  * A bucketized cuckoo hash table.  The table is an array of buckets of
+  * 4 slots each, and a key may only be in one of two buckets, chosen by
+  * two hash functions of its hash code, or in a small stash of at most
+  * 4 entries, so a search looks at no more than two buckets and the
+  * stash whatever the load.  The keys, values and hash codes are kept
+  * in parallel arrays, with no entry object per key.
+  *
+  * <p>A new key goes to a free slot of one of its buckets if there is
+  * one; otherwise it takes a slot at random, and the key it evicts moves
+  * to its other bucket, evicting another key if needed, and so on for at
+  * most {@link #MAX_KICKS} moves, after which the key left over goes to
+  * the stash.  The table doubles its buckets when the stash is full or
+  * the load factor would exceed a maximum, 0.9 by default.  Removal just
+  * empties a slot, and gives a stashed key a chance to move back.
+  *
+  * <p>Keys with equal hash codes share both buckets in a table of any
+  * size, so growing cannot separate more of them than the buckets
+  * hold.  A key left over when every slot of its buckets holds a key of
+  * its hash code goes instead to an overflow list with no bound, which
+  * searches only look at when it is not empty.
+  *
+  * <p>The iterables of keys, values and entries are views whose
+  * iterators fail fast if an entry is added or removed meanwhile.
+  *
+  * @see HashTableMap
+  */
+public class CuckooHashMap<K,V> implements Map<K,V> {
+  /** Slots per bucket. */
+  public static final int SLOTS = 4;
+  /** Maximum number of entries in the stash. */
+  public static final int STASH = 4;
+  /** Maximum number of keys moved by one insertion. */
+  public static final int MAX_KICKS = 500;
+  /** Default maximum load factor. */
+  public static final double DEFAULT_MAX_LOAD = 0.9;
+  protected Object[] keys;	// key of each slot, null if empty
+  protected Object[] values;	// value of each slot
+  protected int[] hashes;	// hash code of each key
+  protected Object[] stashKeys = new Object[STASH];
+  protected Object[] stashValues = new Object[STASH];
+  protected int stashed = 0;	// entries in the stash
+  protected Object pending, pendingValue;	// entry left over by insert
+  protected Object[] overflowKeys, overflowValues;	// null until needed
+  protected int overflowed = 0;	// entries in the overflow list
+  protected int n = 0;	// number of entries, including stash and overflow
+  protected int bucketMask;	// number of buckets - 1
+  protected int threshold;	// size at which the table grows
+  protected final double maxLoad;
+  protected int random = 0x9e3779b9;	// xorshift state for evictions
+  protected int modCount = 0;	// number of additions and removals
+  /** Creates a table for 16 entries with maximum load 0.9. */
+  public CuckooHashMap() { this(16, DEFAULT_MAX_LOAD); }
+  /** Creates a table that can hold the given number of entries without
+   * growing, with the given maximum load factor.
+   * @throws IllegalArgumentException if the load is not in (0, 1) */
+  public CuckooHashMap(int expected, double maxLoad) {
+    if (!(maxLoad > 0 && maxLoad < 1))
+      throw new IllegalArgumentException("Maximum load must be in (0, 1)");
+    this.maxLoad = maxLoad;
+    int buckets = 4;
+    while (buckets * SLOTS * maxLoad < expected && buckets < (1 << 28))
+      buckets <<= 1;
+    allocate(buckets);
+  }
+  /** Returns the number of entries in the table. */
+  public int size() { return n; }
+  /** Returns whether the table is empty. */
+  public boolean isEmpty() { return n == 0; }
+  /** Returns the number of slots, which is 4 times that of buckets. */
+  public int capacity() { return keys.length; }
+  /** Returns the fraction of the slots in use. */
+  public double loadFactor() {
+    return (n - stashed - overflowed) / (double) keys.length;
+  }
+  /** Returns the number of entries in the stash. */
+  public int stashSize() { return stashed; }
+  /** Returns the number of entries in the overflow list. */
+  public int overflowSize() { return overflowed; }
+
+  /** Returns the value associated with a key, or null if none, looking
+   * in two buckets, the stash and the overflow list, if not empty, at
+   * most. */
+  public V get(K key) throws InvalidKeyException {
+    checkKey(key);
+    int h = key.hashCode();
+    int i = findEntry(key, h);
+    if (i >= 0) return (V) values[i];
+    int s = findStashed(key);
+    if (s >= 0) return (V) stashValues[s];
+    if (overflowed == 0) return null;
+    int o = findOverflow(key);
+    return (o < 0) ? null : (V) overflowValues[o];
+  }
+  /** Puts a key-value pair in the map, replacing the previous one if it
+   * exists, and returns the previous value or null. */
+  public V put(K key, V value) throws InvalidKeyException {
+    checkKey(key);
+    int h = key.hashCode();
+    int i = findEntry(key, h);
+    if (i >= 0) {
+      V old = (V) values[i];
+      values[i] = value;
+      return old;
+    }
+    int s = findStashed(key);
+    if (s >= 0) {
+      V old = (V) stashValues[s];
+      stashValues[s] = value;
+      return old;
+    }
+    if (overflowed > 0) {
+      int o = findOverflow(key);
+      if (o >= 0) {
+	V old = (V) overflowValues[o];
+	overflowValues[o] = value;
+	return old;
+      }
+    }
+    if (n - overflowed >= threshold)
+      grow();
+    if (!insert(key, value, h))
+      grow();	// the stash was full: place the entry left over
+    n++;
+    modCount++;
+    return null;
+  }
+  /** Removes the key-value pair with a specified key and returns its
+   * value, or null if none. */
+  public V remove(K key) throws InvalidKeyException {
+    checkKey(key);
+    int h = key.hashCode();
+    int i = findEntry(key, h);
+    V old;
+    if (i >= 0) {
+      old = (V) values[i];
+      keys[i] = null;
+      values[i] = null;
+      if (stashed > 0 || overflowed > 0) unstash();
+    }
+    else {
+      int s = findStashed(key);
+      if (s >= 0) {
+	old = (V) stashValues[s];
+	removeStashed(s);
+      }
+      else {
+	int o = (overflowed == 0) ? -1 : findOverflow(key);
+	if (o < 0) return null;
+	old = (V) overflowValues[o];
+	removeOverflow(o);
+      }
+    }
+    n--;
+    modCount++;
+    return old;
+  }
+
+  /** Returns an iterable view of the keys. */
+  public Iterable<K> keys() {
+    return new Iterable<K>() {
+      public Iterator<K> iterator() {
+	return new SlotIterator<K>() {
+	  K at(Object[] k, Object[] v, int i) { return (K) k[i]; }
+	};
+      }
+    };
+  }
+  /** Returns an iterable view of the values. */
+  public Iterable<V> values() {
+    return new Iterable<V>() {
+      public Iterator<V> iterator() {
+	return new SlotIterator<V>() {
+	  V at(Object[] k, Object[] v, int i) { return (V) v[i]; }
+	};
+      }
+    };
+  }
+  /** Returns an iterable view of the entries. */
+  public Iterable<Entry<K,V>> entries() {
+    return new Iterable<Entry<K,V>>() {
+      public Iterator<Entry<K,V>> iterator() {
+	return new SlotIterator<Entry<K,V>>() {
+	  Entry<K,V> at(Object[] k, Object[] v, int i) {
+	    return new HashTableMap.HashEntry<K,V>((K) k[i], (V) v[i]);
+	  }
+	};
+      }
+    };
+  }
+
+  /** Determines whether a key is valid. */
+  protected void checkKey(K k) {
+    if (k == null) throw new InvalidKeyException("Invalid key: null.");
+  }
+  /** Returns the first bucket of a hash code. */
+  protected int bucket1(int h) { return FlatHashMap.mix(h) & bucketMask; }
+  /** Returns the second bucket of a hash code, by an independent mix. */
+  protected int bucket2(int h) {
+    return FlatHashMap.mix(h ^ 0x5bd1e995) & bucketMask;
+  }
+  /** Returns the slot of a key with hash code h in its two buckets, or
+   * -1 if it is in neither. */
+  protected int findEntry(K key, int h) {
+    int b = bucket1(h) * SLOTS;
+    for (int i = b; i < b + SLOTS; i++)
+      if (hashes[i] == h && keys[i] != null
+	  && (keys[i] == key || key.equals(keys[i])))
+	return i;
+    b = bucket2(h) * SLOTS;
+    for (int i = b; i < b + SLOTS; i++)
+      if (hashes[i] == h && keys[i] != null
+	  && (keys[i] == key || key.equals(keys[i])))
+	return i;
+    return -1;
+  }
+  /** Returns the index of a key in the stash, or -1. */
+  protected int findStashed(K key) {
+    for (int s = 0; s < stashed; s++)
+      if (key.equals(stashKeys[s])) return s;
+    return -1;
+  }
+  /** Returns the index of a key in the overflow list, or -1. */
+  protected int findOverflow(K key) {
+    for (int o = 0; o < overflowed; o++)
+      if (key.equals(overflowKeys[o])) return o;
+    return -1;
+  }
+  /** Returns an empty slot of a bucket, or -1 if it is full. */
+  protected int freeSlot(int bucket) {
+    int b = bucket * SLOTS;
+    for (int i = b; i < b + SLOTS; i++)
+      if (keys[i] == null) return i;
+    return -1;
+  }
+  /** Places a key that is not in the table, evicting keys to their
+   * other buckets if needed; the key left over goes to the overflow
+   * list if it collides with its buckets, or else to the stash.
+   * Returns false if it found the stash full, in which case it is the
+   * only key not in place. */
+  protected boolean insert(K key, V value, int h) {
+    int b1 = bucket1(h), b2 = bucket2(h);
+    int i = freeSlot(b1);
+    if (i < 0) i = freeSlot(b2);
+    if (i >= 0) {
+      set(i, key, value, h);
+      return true;
+    }
+    Object k = key, v = value;
+    int bucket = nextRandom(2) == 0 ? b1 : b2;
+    for (int kick = 0; kick < MAX_KICKS; kick++) {
+      i = bucket * SLOTS + nextRandom(SLOTS);	// evict a random slot
+      Object ek = keys[i], ev = values[i];
+      int eh = hashes[i];
+      set(i, k, v, h);
+      k = ek;
+      v = ev;
+      h = eh;
+      bucket = (bucket1(h) == bucket) ? bucket2(h) : bucket1(h);
+      int j = freeSlot(bucket);
+      if (j >= 0) {
+	set(j, k, v, h);
+	return true;
+      }
+    }
+    if (collides(h)) {	// no bigger table can help
+      addOverflow(k, v);
+      return true;
+    }
+    if (stashed == STASH) {
+      pending = k;	// for grow to put back
+      pendingValue = v;
+      return false;
+    }
+    stashKeys[stashed] = k;
+    stashValues[stashed++] = v;
+    return true;
+  }
+  /** Stores an entry in slot i. */
+  protected void set(int i, Object k, Object v, int h) {
+    keys[i] = k;
+    values[i] = v;
+    hashes[i] = h;
+  }
+  /** Returns whether every slot of the buckets of a hash code holds a
+   * key with that hash code. */
+  protected boolean collides(int h) {
+    int b1 = bucket1(h) * SLOTS, b2 = bucket2(h) * SLOTS;
+    for (int j = 0; j < SLOTS; j++)
+      if (keys[b1 + j] == null || hashes[b1 + j] != h
+	  || keys[b2 + j] == null || hashes[b2 + j] != h)
+	return false;
+    return true;
+  }
+  /** Adds an entry at the end of the overflow list. */
+  protected void addOverflow(Object k, Object v) {
+    if (overflowKeys == null) {
+      overflowKeys = new Object[STASH];
+      overflowValues = new Object[STASH];
+    }
+    else if (overflowed == overflowKeys.length) {
+      overflowKeys = java.util.Arrays.copyOf(overflowKeys, 2 * overflowed);
+      overflowValues = java.util.Arrays.copyOf(overflowValues, 2 * overflowed);
+    }
+    overflowKeys[overflowed] = k;
+    overflowValues[overflowed++] = v;
+  }
+  /** Removes entry o of the overflow list. */
+  protected void removeOverflow(int o) {
+    overflowed--;
+    overflowKeys[o] = overflowKeys[overflowed];
+    overflowValues[o] = overflowValues[overflowed];
+    overflowKeys[overflowed] = null;
+    overflowValues[overflowed] = null;
+  }
+  /** Moves the stashed and overflowing keys that now fit in one of their
+   * buckets. */
+  protected void unstash() {
+    for (int o = overflowed - 1; o >= 0; o--) {
+      int h = overflowKeys[o].hashCode();
+      int i = freeSlot(bucket1(h));
+      if (i < 0) i = freeSlot(bucket2(h));
+      if (i >= 0) {
+	set(i, overflowKeys[o], overflowValues[o], h);
+	removeOverflow(o);
+      }
+    }
+    for (int s = stashed - 1; s >= 0; s--) {
+      int h = stashKeys[s].hashCode();
+      int i = freeSlot(bucket1(h));
+      if (i < 0) i = freeSlot(bucket2(h));
+      if (i >= 0) {
+	set(i, stashKeys[s], stashValues[s], h);
+	removeStashed(s);
+      }
+    }
+  }
+  /** Removes entry s of the stash. */
+  protected void removeStashed(int s) {
+    stashed--;
+    stashKeys[s] = stashKeys[stashed];
+    stashValues[s] = stashValues[stashed];
+    stashKeys[stashed] = null;
+    stashValues[stashed] = null;
+  }
+  /** Returns a pseudorandom int in [0, bound), bound a power of two. */
+  protected int nextRandom(int bound) {
+    int x = random;
+    x ^= x << 13;
+    x ^= x >>> 17;
+    x ^= x << 5;
+    random = x;
+    return (x >>> 16) & (bound - 1);
+  }
+  /** Creates empty arrays of the given power-of-two number of buckets. */
+  protected void allocate(int buckets) {
+    keys = new Object[buckets * SLOTS];
+    values = new Object[buckets * SLOTS];
+    hashes = new int[buckets * SLOTS];
+    bucketMask = buckets - 1;
+    threshold = (int) (buckets * SLOTS * maxLoad);
+  }
+  /** Doubles the number of buckets and reinserts all the entries,
+   * including those of the stash and the entry left over by insert;
+   * doubles again in the unlikely case that they do not fit.  The
+   * overflow list is kept, as growing cannot separate its keys. */
+  protected void grow() {
+    Object[] oldKeys = keys, oldValues = values;
+    int[] oldHashes = hashes;
+    Object[] sk = stashKeys.clone(), sv = stashValues.clone();
+    int oldStashed = stashed, oldOverflowed = overflowed;
+    Object pk = pending, pv = pendingValue;
+    int buckets = bucketMask + 1;
+    while (true) {
+      if (buckets >= (1 << 28))
+	throw new IllegalStateException("Table is full");
+      buckets *= 2;
+      allocate(buckets);
+      java.util.Arrays.fill(stashKeys, null);
+      java.util.Arrays.fill(stashValues, null);
+      stashed = 0;
+      for (; overflowed > oldOverflowed; overflowed--)	// from a failed try
+	overflowKeys[overflowed - 1] = overflowValues[overflowed - 1] = null;
+      pending = pendingValue = null;
+      boolean ok = (pk == null) || insert((K) pk, (V) pv, pk.hashCode());
+      for (int i = 0; i < oldKeys.length && ok; i++)
+	if (oldKeys[i] != null)
+	  ok = insert((K) oldKeys[i], (V) oldValues[i], oldHashes[i]);
+      for (int t = 0; t < oldStashed && ok; t++)
+	ok = insert((K) sk[t], (V) sv[t], sk[t].hashCode());
+      if (ok) return;
+    }
+  }
+
+  /** Fail-fast iterator over the slots, then over the stash and the
+   * overflow list. */
+  protected abstract class SlotIterator<T> implements Iterator<T> {
+    final int expectedModCount = modCount;
+    int next = advance(0);	// next occupied slot, then slots + list index
+    /** Returns the element of the iteration for entry i of the arrays. */
+    abstract T at(Object[] k, Object[] v, int i);
+    int advance(int i) {
+      while (i < keys.length && keys[i] == null) i++;
+      return i;
+    }
+    public boolean hasNext() {
+      return next < keys.length + stashed + overflowed;
+    }
+    public T next() {
+      if (modCount != expectedModCount)
+	throw new ConcurrentModificationException();
+      if (!hasNext()) throw new NoSuchElementException();
+      T t;
+      if (next < keys.length) {
+	t = at(keys, values, next);
+	next = advance(next + 1);
+      }
+      else if (next < keys.length + stashed)
+	t = at(stashKeys, stashValues, next++ - keys.length);
+      else
+	t = at(overflowKeys, overflowValues, next++ - keys.length - stashed);
+      return t;
+    }
+    public void remove() { throw new UnsupportedOperationException(); }
+  }
+}
@@ -0,0 +1,298 @@
+package net.datastructures;
+import java.util.Comparator;
+
+/**
+  * Realization of an adaptable priority queue by means of a d-ary heap
+  * of int handles.  Each entry is identified by a handle, an index into
+  * flat arrays holding its key, its value and its position in the heap;
+  * the heap itself is an int array of handles.  Handles of removed
+  * entries are recycled.
+  *
+  * <p>The handle methods ({@link #add(Object,Object) add}, {@link
+  * #minHandle() minHandle}, {@link #replaceKey(int,Object) replaceKey},
+  * {@link #remove(int) remove}, ...) allocate nothing.  The methods of
+  * the {@link AdaptablePriorityQueue} interface wrap a handle in an
+  * entry object, created once per handle when first needed; an entry
+  * keeps its key and value after it has been removed from the queue.
+  *
+  * @see DaryHeapPriorityQueue
+  */
+public class DaryHeapAdaptablePriorityQueue<K,V>
+  implements AdaptablePriorityQueue<K,V> {
+  protected int[] heap;	// handles in heap order
+  protected int[] pos;	// heap index of each handle, -1 if free
+  protected Object[] keys;	// key of each handle
+  protected Object[] values;	// value of each handle
+  protected HandleEntry<K,V>[] entries;	// entry of each handle, if any
+  protected int[] free;	// stack of free handles
+  protected int numFree = 0;
+  protected int size = 0;	// number of entries
+  protected int used = 0;	// number of handles ever issued
+  protected final int d;	// arity of the heap
+  protected Comparator<K> comp;	// comparator for the keys
+  /** Creates an empty 4-ary heap with the default comparator. */
+  public DaryHeapAdaptablePriorityQueue() {
+    this(DaryHeapPriorityQueue.DEFAULT_ARITY, new DefaultComparator<K>());
+  }
+  /** Creates an empty 4-ary heap with the given comparator. */
+  public DaryHeapAdaptablePriorityQueue(Comparator<K> c) {
+    this(DaryHeapPriorityQueue.DEFAULT_ARITY, c);
+  }
+  /** Creates an empty heap with the given arity and comparator.
+   * @throws IllegalArgumentException if the arity is less than 2 */
+  public DaryHeapAdaptablePriorityQueue(int arity, Comparator<K> c) {
+    if (arity < 2)
+      throw new IllegalArgumentException("Arity must be at least 2");
+    d = arity;
+    comp = c;
+    int cap = 16;
+    heap = new int[cap];
+    pos = new int[cap];
+    keys = new Object[cap];
+    values = new Object[cap];
+    free = new int[cap];
+  }
+  /** Returns the size of the heap */
+  public int size() { return size; }
+  /** Returns whether the heap is empty */
+  public boolean isEmpty() { return size == 0; }
+
+  // Handle interface
+
+  /** Inserts a key-value pair and returns its handle */
+  public int add(K k, V x) throws InvalidKeyException {
+    checkKey(k);
+    int h;
+    if (numFree > 0)
+      h = free[--numFree];
+    else {
+      if (used == keys.length) grow();
+      h = used++;
+    }
+    keys[h] = k;
+    values[h] = x;
+    heap[size] = h;
+    pos[h] = size;
+    upHeap(size++);
+    return h;
+  }
+  /** Returns the handle of an entry with minimum key */
+  public int minHandle() throws EmptyPriorityQueueException {
+    if (size == 0)
+      throw new EmptyPriorityQueueException("Priority queue is empty");
+    return heap[0];
+  }
+  /** Returns whether a handle belongs to an entry of the queue */
+  public boolean contains(int h) {
+    return h >= 0 && h < used && pos[h] >= 0;
+  }
+  /** Returns the key of the entry with the given handle */
+  public K key(int h) throws InvalidEntryException {
+    checkHandle(h);
+    return (K) keys[h];
+  }
+  /** Returns the value of the entry with the given handle */
+  public V value(int h) throws InvalidEntryException {
+    checkHandle(h);
+    return (V) values[h];
+  }
+  /** Replaces the key of the entry with the given handle */
+  public K replaceKey(int h, K k)
+    throws InvalidEntryException, InvalidKeyException {
+    checkKey(k);
+    checkHandle(h);
+    K oldKey = (K) keys[h];
+    keys[h] = k;
+    int c = comp.compare(k, oldKey);
+    if (c < 0) upHeap(pos[h]);
+    else if (c > 0) downHeap(pos[h]);
+    return oldKey;
+  }
+  /** Replaces the value of the entry with the given handle */
+  public V replaceValue(int h, V x) throws InvalidEntryException {
+    checkHandle(h);
+    V oldValue = (V) values[h];
+    values[h] = x;
+    return oldValue;
+  }
+  /** Removes the entry with the given handle and returns its value;
+   * the handle may be reused by a later insertion */
+  public V remove(int h) throws InvalidEntryException {
+    checkHandle(h);
+    V x = (V) values[h];
+    int i = pos[h];
+    int last = heap[--size];
+    if (last != h) {	// move the last entry into the hole
+      heap[i] = last;
+      pos[last] = i;
+      if (comp.compare((K) keys[last], (K) keys[h]) < 0) upHeap(i);
+      else downHeap(i);
+    }
+    release(h);
+    return x;
+  }
+  /** Removes an entry with minimum key and returns its value */
+  public V removeMinValue() throws EmptyPriorityQueueException {
+    return remove(minHandle());
+  }
+
+  // AdaptablePriorityQueue interface
+
+  /** Returns but does not remove an entry with minimum key */
+  public Entry<K,V> min() throws EmptyPriorityQueueException {
+    return entry(minHandle());
+  }
+  /** Inserts a key-value pair and returns the entry created */
+  public Entry<K,V> insert(K k, V x) throws InvalidKeyException {
+    return entry(add(k, x));
+  }
+  /** Removes and returns an entry with minimum key */
+  public Entry<K,V> removeMin() throws EmptyPriorityQueueException {
+    Entry<K,V> e = entry(minHandle());
+    remove(((HandleEntry<K,V>) e).handle);
+    return e;
+  }
+  /** Removes and returns the given entry from the heap */
+  public Entry<K,V> remove(Entry<K,V> e) throws InvalidEntryException {
+    remove(checkEntry(e).handle);
+    return e;
+  }
+  /** Replaces the key of the given entry */
+  public K replaceKey(Entry<K,V> e, K k)
+    throws InvalidEntryException, InvalidKeyException {
+    return replaceKey(checkEntry(e).handle, k);
+  }
+  /** Replaces the value of the given entry */
+  public V replaceValue(Entry<K,V> e, V x) throws InvalidEntryException {
+    return replaceValue(checkEntry(e).handle, x);
+  }
+
+  /** Returns the entry object of a handle, creating it if needed. */
+  protected HandleEntry<K,V> entry(int h) {
+    if (entries == null)
+      entries = (HandleEntry<K,V>[]) new HandleEntry[keys.length];
+    HandleEntry<K,V> e = entries[h];
+    if (e == null)
+      e = entries[h] = new HandleEntry<K,V>(this, h);
+    return e;
+  }
+  /** Frees a handle, detaching its entry object if there is one. */
+  protected void release(int h) {
+    if (entries != null && entries[h] != null) {
+      entries[h].detach((K) keys[h], (V) values[h]);
+      entries[h] = null;
+    }
+    keys[h] = null;	// let the garbage collector reclaim them
+    values[h] = null;
+    pos[h] = -1;
+    free[numFree++] = h;
+  }
+  /** Determines whether a given key is valid */
+  protected void checkKey(K key) throws InvalidKeyException {
+    try {
+      comp.compare(key,key);
+    }
+    catch(Exception e) {
+      throw new InvalidKeyException("Invalid key");
+    }
+  }
+  /** Checks whether a handle belongs to an entry of the queue */
+  protected void checkHandle(int h) throws InvalidEntryException {
+    if (!contains(h))
+      throw new InvalidEntryException("Invalid handle: " + h);
+  }
+  /** Checks whether an entry belongs to this queue */
+  protected HandleEntry<K,V> checkEntry(Entry<K,V> ent)
+    throws InvalidEntryException {
+    if (ent == null || !(ent instanceof HandleEntry))
+      throw new InvalidEntryException("Invalid entry");
+    HandleEntry<K,V> e = (HandleEntry<K,V>) ent;
+    if (e.owner != this || e.handle < 0)
+      throw new InvalidEntryException("Entry is not in this queue");
+    return e;
+  }
+  /** Doubles the length of the arrays indexed by handle. */
+  protected void grow() {
+    int cap = 2*keys.length;
+    heap = java.util.Arrays.copyOf(heap, cap);
+    pos = java.util.Arrays.copyOf(pos, cap);
+    keys = java.util.Arrays.copyOf(keys, cap);
+    values = java.util.Arrays.copyOf(values, cap);
+    free = java.util.Arrays.copyOf(free, cap);
+    if (entries != null)
+      entries = java.util.Arrays.copyOf(entries, cap);
+  }
+  /** Moves the handle at heap index i up to its place. */
+  protected void upHeap(int i) {
+    int h = heap[i];
+    K k = (K) keys[h];
+    while (i > 0) {
+      int p = (i - 1) / d;
+      int ph = heap[p];
+      if (comp.compare((K) keys[ph], k) <= 0) break;
+      heap[i] = ph;
+      pos[ph] = i;
+      i = p;
+    }
+    heap[i] = h;
+    pos[h] = i;
+  }
+  /** Moves the handle at heap index i down to its place. */
+  protected void downHeap(int i) {
+    int h = heap[i];
+    K k = (K) keys[h];
+    while (true) {
+      int first = d*i + 1;	// first child of i
+      if (first >= size) break;
+      int last = Math.min(first + d, size);
+      int s = first;	// the smallest child
+      K sk = (K) keys[heap[s]];
+      for (int c = first + 1; c < last; c++) {
+	K ck = (K) keys[heap[c]];
+	if (comp.compare(ck, sk) < 0) {
+	  s = c;
+	  sk = ck;
+	}
+      }
+      if (comp.compare(sk, k) >= 0) break;
+      heap[i] = heap[s];
+      pos[heap[i]] = i;
+      i = s;
+    }
+    heap[i] = h;
+    pos[h] = i;
+  }
+  /** Text visualization for debugging purposes */
+  public String toString() {
+    String s = "[";
+    for (int i = 0; i < size; i++)
+      s += ((i > 0) ? ", " : "") + "(" + keys[heap[i]] + ","
+	+ values[heap[i]] + ")";
+    return s + "]";
+  }
+
+  /** Inner class for an entry that refers to a handle of the queue. */
+  protected static class HandleEntry<K,V> implements Entry<K,V> {
+    protected final DaryHeapAdaptablePriorityQueue<K,V> owner;
+    protected int handle;	// -1 once the entry is removed
+    protected K key;	// key and value after removal
+    protected V value;
+    HandleEntry(DaryHeapAdaptablePriorityQueue<K,V> q, int h) {
+      owner = q;
+      handle = h;
+    }
+    /** Keeps the key and value of an entry leaving the queue. */
+    protected void detach(K k, V x) {
+      key = k;
+      value = x;
+      handle = -1;
+    }
+    public K getKey() {
+      return (handle < 0) ? key : (K) owner.keys[handle];
+    }
+    public V getValue() {
+      return (handle < 0) ? value : (V) owner.values[handle];
+    }
+    public String toString() { return "(" + getKey() + "," + getValue() + ")"; }
+  }
+}
@@ -0,0 +1,156 @@
+package net.datastructures;
+import java.util.Comparator;
+
+/**
+  * Realization of a priority queue by means of a d-ary heap stored in
+  * two flat parallel arrays of keys and values.  The children of the
+  * node at index <i>i</i> are at indices <i>d*i+1</i> to <i>d*i+d</i>.
+  * Unlike {@link HeapPriorityQueue}, no position or entry object is kept
+  * per element, and bubbling moves a hole instead of swapping entries.
+  * A larger arity makes the heap shallower, which speeds up insertions
+  * and reduces cache misses; 4 is a good default.
+  *
+  * <p>The entries returned by the methods of the {@link PriorityQueue}
+  * interface are snapshots created on demand.  The methods {@link
+  * #add(Object,Object) add}, {@link #minKey() minKey}, {@link #minValue()
+  * minValue} and {@link #removeMinValue() removeMinValue} do the same
+  * work without allocating anything.
+  *
+  * @see DaryHeapAdaptablePriorityQueue
+  */
+public class DaryHeapPriorityQueue<K,V> implements PriorityQueue<K,V> {
+  /** Default arity of the heap. */
+  public static final int DEFAULT_ARITY = 4;
+  protected Object[] keys;	// keys in heap order
+  protected Object[] values;	// values parallel to keys
+  protected int size = 0;	// number of entries
+  protected final int d;	// arity of the heap
+  protected Comparator<K> comp;	// comparator for the keys
+  /** Creates an empty 4-ary heap with the default comparator. */
+  public DaryHeapPriorityQueue() {
+    this(DEFAULT_ARITY, new DefaultComparator<K>());
+  }
+  /** Creates an empty 4-ary heap with the given comparator. */
+  public DaryHeapPriorityQueue(Comparator<K> c) {
+    this(DEFAULT_ARITY, c);
+  }
+  /** Creates an empty heap with the given arity and comparator.
+   * @throws IllegalArgumentException if the arity is less than 2 */
+  public DaryHeapPriorityQueue(int arity, Comparator<K> c) {
+    if (arity < 2)
+      throw new IllegalArgumentException("Arity must be at least 2");
+    d = arity;
+    comp = c;
+    keys = new Object[16];
+    values = new Object[16];
+  }
+  /** Returns the arity of the heap. */
+  public int arity() { return d; }
+  /** Returns the size of the heap */
+  public int size() { return size; }
+  /** Returns whether the heap is empty */
+  public boolean isEmpty() { return size == 0; }
+  /** Returns but does not remove an entry with minimum key */
+  public Entry<K,V> min() throws EmptyPriorityQueueException {
+    return new HeapPriorityQueue.MyEntry<K,V>(minKey(), minValue());
+  }
+  /** Returns a minimum key without removing its entry */
+  public K minKey() throws EmptyPriorityQueueException {
+    checkNotEmpty();
+    return (K) keys[0];
+  }
+  /** Returns the value of an entry with minimum key */
+  public V minValue() throws EmptyPriorityQueueException {
+    checkNotEmpty();
+    return (V) values[0];
+  }
+  /** Inserts a key-value pair and returns the entry created */
+  public Entry<K,V> insert(K k, V x) throws InvalidKeyException {
+    add(k, x);
+    return new HeapPriorityQueue.MyEntry<K,V>(k, x);
+  }
+  /** Inserts a key-value pair without creating an entry */
+  public void add(K k, V x) throws InvalidKeyException {
+    checkKey(k);
+    if (size == keys.length) grow();
+    upHeap(size++, k, x);
+  }
+  /** Removes and returns an entry with minimum key */
+  public Entry<K,V> removeMin() throws EmptyPriorityQueueException {
+    K k = minKey();
+    return new HeapPriorityQueue.MyEntry<K,V>(k, removeMinValue());
+  }
+  /** Removes an entry with minimum key and returns its value */
+  public V removeMinValue() throws EmptyPriorityQueueException {
+    checkNotEmpty();
+    V min = (V) values[0];
+    size--;
+    K k = (K) keys[size];
+    V x = (V) values[size];
+    keys[size] = null;	// let the garbage collector reclaim them
+    values[size] = null;
+    if (size > 0)
+      downHeap(0, k, x);
+    return min;
+  }
+  /** Determines whether a given key is valid */
+  protected void checkKey(K key) throws InvalidKeyException {
+    try {
+      comp.compare(key,key);
+    }
+    catch(Exception e) {
+      throw new InvalidKeyException("Invalid key");
+    }
+  }
+  /** Throws an exception if the heap is empty */
+  protected void checkNotEmpty() throws EmptyPriorityQueueException {
+    if (size == 0)
+      throw new EmptyPriorityQueueException("Priority queue is empty");
+  }
+  /** Doubles the length of the arrays. */
+  protected void grow() {
+    Object[] k = new Object[2*keys.length];
+    Object[] v = new Object[2*keys.length];
+    System.arraycopy(keys, 0, k, 0, size);
+    System.arraycopy(values, 0, v, 0, size);
+    keys = k;
+    values = v;
+  }
+  /** Moves the hole at index i up until the given entry fits in it. */
+  protected void upHeap(int i, K k, V x) {
+    while (i > 0) {
+      int p = (i - 1) / d;
+      if (comp.compare((K) keys[p], k) <= 0) break;
+      keys[i] = keys[p];
+      values[i] = values[p];
+      i = p;
+    }
+    keys[i] = k;
+    values[i] = x;
+  }
+  /** Moves the hole at index i down until the given entry fits in it. */
+  protected void downHeap(int i, K k, V x) {
+    while (true) {
+      int first = d*i + 1;	// first child of i
+      if (first >= size) break;
+      int last = Math.min(first + d, size);
+      int s = first;	// the smallest child
+      for (int c = first + 1; c < last; c++)
+	if (comp.compare((K) keys[c], (K) keys[s]) < 0)
+	  s = c;
+      if (comp.compare((K) keys[s], k) >= 0) break;
+      keys[i] = keys[s];
+      values[i] = values[s];
+      i = s;
+    }
+    keys[i] = k;
+    values[i] = x;
+  }
+  /** Text visualization for debugging purposes */
+  public String toString() {
+    String s = "[";
+    for (int i = 0; i < size; i++)
+      s += ((i > 0) ? ", " : "") + "(" + keys[i] + "," + values[i] + ")";
+    return s + "]";
+  }
+}
@@ -30,6 +30,10 @@ public class Dijkstra<V, E> {
   protected Object ENTRY = new Object();
   /** Auxiliary priority queue. */
   protected AdaptablePriorityQueue<Integer, Vertex<V>> Q;
+//end#fragment execute
+  /** Priority queue set by the user, or null for the default heap. */
+  protected AdaptablePriorityQueue<Integer, Vertex<V>> userQ;
+//begin#fragment execute
   /** Executes Dijkstra's algorithm.
     * @param g Input graph
     * @param s Source vertex
@@ -37,10 +41,35 @@ public class Dijkstra<V, E> {
   public void execute(Graph<V, E> g, Vertex<V> s, Object w) {
     graph = g;
     WEIGHT = w;
+    Q = newPriorityQueue();
+    try {
+      dijkstraVisit(s);
+    } finally {	// empty after an exception, for the next execution
+      while (!Q.isEmpty())
+	Q.removeMin().getValue().remove(ENTRY);
+    }
+  }
+//end#fragment execute
+  /** Sets the priority queue used by the following executions, for
+    * instance a {@link RadixHeapAdaptablePriorityQueue} for small
+    * integer weights.  The queue is empty after each execution, even
+    * one ended by an exception, so it is reused.  A null argument
+    * restores the default heap.
+    * @throws IllegalStateException if the queue is not empty */
+  public void setPriorityQueue(AdaptablePriorityQueue<Integer, Vertex<V>> q)
+    throws IllegalStateException {
+    if (q != null && !q.isEmpty())
+      throw new IllegalStateException("Priority queue is not empty");
+    userQ = q;
+  }
+  /** Returns the priority queue for an execution: the one set with
+    * {@link #setPriorityQueue setPriorityQueue}, or a new heap. */
+  protected AdaptablePriorityQueue<Integer, Vertex<V>> newPriorityQueue() {
+    if (userQ != null) return userQ;
     DefaultComparator dc = new DefaultComparator();
-    Q = new HeapAdaptablePriorityQueue<Integer, Vertex<V>>(dc);
-    dijkstraVisit(s);
+    return new HeapAdaptablePriorityQueue<Integer, Vertex<V>>(dc);
   }
+//begin#fragment execute
   /** Get the distance of a vertex from the source vertex.
 //end#fragment execute
    * This method returns the length of a shortest path from the source
@@ -59,14 +88,18 @@ public class Dijkstra<V, E> {
     */
   protected void dijkstraVisit (Vertex<V> v) {
     // store all the vertices in priority queue Q
-    for (Vertex<V> u: graph.vertices()) {
-      int u_dist;
-      if (u==v)
-	u_dist = 0;
-      else
-	u_dist = INFINITE;
-      Entry<Integer, Vertex<V>> u_entry = Q.insert(u_dist, u);	// autoboxing
-      u.put(ENTRY, u_entry);
+    if (Q instanceof HeapPriorityQueue)
+      seedHeap(v);	// build the heap bottom-up
+    else {
+      for (Vertex<V> u: graph.vertices()) {
+	int u_dist;
+	if (u==v)
+	  u_dist = 0;
+	else
+	  u_dist = INFINITE;
+	Entry<Integer, Vertex<V>> u_entry = Q.insert(u_dist, u); // autoboxing
+	u.put(ENTRY, u_entry);
+      }
     }
     // grow the cloud, one vertex at a time
     while (!Q.isEmpty()) {
@@ -94,4 +127,21 @@ public class Dijkstra<V, E> {
     }
   }
   //end#fragment dijkstraVisit
+  /** Inserts all the vertices in a heap-based queue Q at once, with
+    * distance 0 for the source v and infinity for the others, building
+    * the heap bottom-up in linear time. */
+  protected void seedHeap(Vertex<V> v) {
+    int n = graph.numVertices();
+    Integer[] dists = new Integer[n];
+    Vertex<V>[] verts = (Vertex<V>[]) new Vertex[n];
+    int i = 0;
+    for (Vertex<V> u: graph.vertices()) {
+      dists[i] = (u == v) ? 0 : INFINITE;
+      verts[i++] = u;
+    }
+    Entry<Integer, Vertex<V>>[] entries =
+      ((HeapPriorityQueue<Integer, Vertex<V>>) Q).insertAll(dists, verts);
+    for (i = 0; i < n; i++)
+      verts[i].put(ENTRY, entries[i]);
+  }
 } // end of Dijkstra class
@@ -0,0 +1,10 @@
+package net.datastructures;
+
+/**
+ * A primitive weight function on the edges of a graph whose edges are
+ * numbered, such as a {@link CSRGraph}.
+ */
+public interface EdgeWeightFunction {
+  /** Returns the non-negative weight of the edge with the given id. */
+  public int weight(int edge);
+}
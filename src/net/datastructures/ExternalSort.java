@@ -0,0 +1,333 @@
+package net.datastructures;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * External merge sort of a file of records too large to sort in memory.
+ * A file of records is a sequence of records, each written as its
+ * length, a 4-byte int, followed by the bytes of its {@link RecordCodec}.
+ *
+ * <p>The input is read in chunks whose estimated size fits the memory
+ * budget; each chunk is sorted with {@link Sort#adaptiveMergeSort
+ * Sort.adaptiveMergeSort} and spilled to a temporary file as a sorted
+ * run.  The runs are then merged, at most {@link #getMaxFanIn()} at a
+ * time, by a k-way merge that keeps the reader of each run in a {@link
+ * HeapPriorityQueue} keyed by its current record; when there are more
+ * runs than that, groups of runs are merged into longer runs first.
+ * Ties are broken by the position of the run in the input, so the sort
+ * is stable.  All files are read and written through buffered channels.
+ *
+ * @see RecordCodec
+ */
+public class ExternalSort<E> {
+  /** Estimated bytes of memory taken by a record besides its encoded
+   * bytes, for its object header and its reference in the chunk. */
+  public static final int RECORD_OVERHEAD = 48;
+  /** Default size in bytes of a file buffer. */
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  /** Default maximum number of runs merged at once. */
+  public static final int DEFAULT_MAX_FAN_IN = 64;
+  protected RecordCodec<E> codec;
+  protected Comparator<E> comp;
+  protected long memoryBudget;	// bytes for a chunk of records
+  protected int maxFanIn = DEFAULT_MAX_FAN_IN;
+  protected int bufferSize = DEFAULT_BUFFER_SIZE;
+  protected File tempDir;	// null for the default temporary directory
+  protected int runs;	// runs spilled by the last sort
+  protected int mergePasses;	// merge passes of the last sort
+
+  /** Creates a sorter of records read and written with the given codec,
+   * ordered by the given comparator, using chunks of about the given
+   * number of bytes.
+   * @throws IllegalArgumentException if the budget is not positive */
+  public ExternalSort(RecordCodec<E> codec, Comparator<E> c,
+		      long memoryBudget) {
+    if (memoryBudget <= 0)
+      throw new IllegalArgumentException("Memory budget must be positive");
+    this.codec = codec;
+    comp = c;
+    this.memoryBudget = memoryBudget;
+  }
+  /** Returns the maximum number of runs merged at once. */
+  public int getMaxFanIn() { return maxFanIn; }
+  /** Sets the maximum number of runs merged at once.
+   * @throws IllegalArgumentException if it is less than 2 */
+  public void setMaxFanIn(int fanIn) {
+    if (fanIn < 2)
+      throw new IllegalArgumentException("Fan-in must be at least 2");
+    maxFanIn = fanIn;
+  }
+  /** Sets the size in bytes of the buffer of each file. */
+  public void setBufferSize(int size) {
+    if (size < 16)
+      throw new IllegalArgumentException("Buffer size must be at least 16");
+    bufferSize = size;
+  }
+  /** Sets the directory of the temporary files, or null for the
+   * default one. */
+  public void setTempDirectory(File dir) { tempDir = dir; }
+  /** Returns the number of runs spilled by the last sort. */
+  public int runCount() { return runs; }
+  /** Returns the number of merge passes of the last sort. */
+  public int mergePassCount() { return mergePasses; }
+
+  /** Sorts the records of the input file into the output file, which
+   * is created or overwritten and may not be the input file. */
+  public void sort(File input, File output) throws IOException {
+    runs = 0;
+    mergePasses = 0;
+    PositionList<File> runFiles = new NodePositionList<File>();
+    PositionList<File> merged = new NodePositionList<File>();	// next pass
+    try {
+      RecordReader<E> in = new RecordReader<E>(input, codec, bufferSize);
+      try {
+	spillRuns(in, runFiles);
+      } finally {
+	in.close();
+      }
+      while (runFiles.size() > maxFanIn) { // merge groups into longer runs
+	while (!runFiles.isEmpty()) {
+	  PositionList<File> group = new NodePositionList<File>();
+	  while (!runFiles.isEmpty() && group.size() < maxFanIn)
+	    group.addLast(runFiles.remove(runFiles.first()));
+	  if (group.size() == 1) {
+	    merged.addLast(group.first().element());
+	    continue;
+	  }
+	  try {
+	    File f = tempFile();
+	    merged.addLast(f);
+	    merge(group, f);
+	  } finally {
+	    delete(group);	// merged, or left behind by a failure
+	  }
+	}
+	runFiles = merged;
+	merged = new NodePositionList<File>();
+	mergePasses++;
+      }
+      merge(runFiles, output);
+      mergePasses++;
+    } finally {	// every temporary file left is in one of the lists
+      delete(runFiles);
+      delete(merged);
+    }
+  }
+
+  /** Reads the input in chunks, sorts them and writes each one to a new
+   * temporary file, added to the end of the list. */
+  protected void spillRuns(RecordReader<E> in, PositionList<File> runFiles)
+    throws IOException {
+    E[] chunk = (E[]) new Object[1024];
+    while (true) {
+      int n = 0;
+      long bytes = 0;
+      E record = null;
+      while (bytes < memoryBudget && (record = in.read()) != null) {
+	if (n == chunk.length)
+	  chunk = Arrays.copyOf(chunk, 2*n);
+	chunk[n++] = record;
+	bytes += in.lastLength() + RECORD_OVERHEAD;
+      }
+      if (n == 0 && !runFiles.isEmpty())
+	return;	// an empty input still makes one empty run
+      Sort.adaptiveMergeSort(chunk, comp, 0, n);
+      File f = tempFile();
+      runFiles.addLast(f);
+      RecordWriter<E> out = new RecordWriter<E>(f, codec, bufferSize);
+      try {
+	for (int i = 0; i < n; i++)
+	  out.write(chunk[i]);
+      } finally {
+	out.close();
+      }
+      Arrays.fill(chunk, 0, n, null);	// let the garbage collector work
+      runs++;
+      if (record == null)
+	return;	// end of the input
+    }
+  }
+  /** Merges the sorted runs in the given files, in order, into the
+   * output file. */
+  protected void merge(PositionList<File> runFiles, File output)
+    throws IOException {
+    int k = runFiles.size();
+    int buffer = (int) Math.max(4096, Math.min(bufferSize,
+					       memoryBudget / (k + 1)));
+    HeapPriorityQueue<RunReader<E>, RunReader<E>> heap =
+      new HeapPriorityQueue<RunReader<E>, RunReader<E>>(new RunComparator());
+    RecordWriter<E> out = new RecordWriter<E>(output, codec, bufferSize);
+    PositionList<RunReader<E>> readers = new NodePositionList<RunReader<E>>();
+    try {
+      int index = 0;
+      for (File f : runFiles) {
+	RunReader<E> r = new RunReader<E>(f, codec, buffer, index++);
+	readers.addLast(r);
+	if (r.advance())
+	  heap.insert(r, r);
+      }
+      while (!heap.isEmpty()) {
+	RunReader<E> r = heap.removeMin().getValue();
+	out.write(r.current);
+	if (r.advance())
+	  heap.insert(r, r);	// keyed by its next record
+      }
+    } finally {
+      for (RunReader<E> r : readers)
+	r.close();
+      out.close();
+    }
+  }
+  /** Returns a new temporary file for a run. */
+  protected File tempFile() throws IOException {
+    return File.createTempFile("run", ".tmp", tempDir);
+  }
+  /** Deletes the given files. */
+  protected void delete(PositionList<File> files) {
+    for (File f : files)
+      f.delete();
+  }
+
+  /** Orders run readers by their current records, and by the position
+   * of their runs in the input on ties. */
+  protected class RunComparator implements Comparator<RunReader<E>> {
+    public int compare(RunReader<E> a, RunReader<E> b) {
+      int c = comp.compare(a.current, b.current);
+      if (c != 0) return c;
+      return (a.index < b.index) ? -1 : ((a.index == b.index) ? 0 : 1);
+    }
+  }
+  /** Reader of a run that holds its current record. */
+  protected static class RunReader<E> extends RecordReader<E> {
+    protected final int index;	// position of the run in the input
+    protected E current;	// current record
+    RunReader(File f, RecordCodec<E> codec, int bufferSize, int index)
+      throws IOException {
+      super(f, codec, bufferSize);
+      this.index = index;
+    }
+    /** Reads the next record into current and returns whether there was
+     * one. */
+    boolean advance() throws IOException {
+      current = read();
+      return current != null;
+    }
+  }
+
+  /**
+   * Reader of a file of records through a buffered channel.
+   */
+  public static class RecordReader<E> implements Closeable {
+    protected final RecordCodec<E> codec;
+    protected final FileChannel channel;
+    protected ByteBuffer buf;	// bytes read but not decoded, in read mode
+    protected int lastLength;	// bytes of the last record
+    /** Opens a file for reading with a buffer of the given size. */
+    public RecordReader(File f, RecordCodec<E> codec, int bufferSize)
+      throws IOException {
+      this.codec = codec;
+      channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+      buf = ByteBuffer.allocate(bufferSize);
+      buf.flip();	// empty
+    }
+    /** Returns the next record, or null at the end of the file.
+     * @throws IOException if the file ends inside a record */
+    public E read() throws IOException {
+      if (!fill(4)) {
+	if (buf.hasRemaining())
+	  throw new IOException("Truncated record length");
+	return null;
+      }
+      int len = buf.getInt();
+      if (len < 0)
+	throw new IOException("Invalid record length: " + len);
+      if (!fill(len))
+	throw new IOException("Truncated record");
+      E record = codec.decode(buf.array(), buf.arrayOffset() + buf.position(),
+			      len);
+      buf.position(buf.position() + len);
+      lastLength = len;
+      return record;
+    }
+    /** Returns the number of bytes of the last record read. */
+    public int lastLength() { return lastLength; }
+    /** Reads until at least n bytes are buffered or the file ends, and
+     * returns whether there are n bytes, growing the buffer if needed. */
+    protected boolean fill(int n) throws IOException {
+      if (buf.remaining() >= n) return true;
+      if (buf.capacity() < n) {	// a record longer than the buffer
+	ByteBuffer b = ByteBuffer.allocate(n);
+	b.put(buf);
+	buf = b;
+      }
+      else
+	buf.compact();
+      while (buf.position() < n && channel.read(buf) >= 0)
+	;
+      buf.flip();
+      return buf.remaining() >= n;
+    }
+    public void close() throws IOException { channel.close(); }
+  }
+
+  /**
+   * Writer of a file of records through a buffered channel.  The file is
+   * created or truncated.
+   */
+  public static class RecordWriter<E> implements Closeable {
+    protected final RecordCodec<E> codec;
+    protected final FileChannel channel;
+    protected final ByteBuffer buf;	// bytes not written yet
+    protected long count = 0;	// records written
+    /** Opens a file for writing with a buffer of the given size. */
+    public RecordWriter(File f, RecordCodec<E> codec, int bufferSize)
+      throws IOException {
+      this.codec = codec;
+      channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+				 StandardOpenOption.WRITE,
+				 StandardOpenOption.TRUNCATE_EXISTING);
+      buf = ByteBuffer.allocate(bufferSize);
+    }
+    /** Writes a record. */
+    public void write(E record) throws IOException {
+      byte[] b = codec.encode(record);
+      if (buf.remaining() < 4 + b.length)
+	flush();
+      if (buf.remaining() < 4 + b.length) {	// longer than the buffer
+	buf.putInt(b.length);
+	flush();
+	ByteBuffer big = ByteBuffer.wrap(b);
+	while (big.hasRemaining())
+	  channel.write(big);
+      }
+      else {
+	buf.putInt(b.length);
+	buf.put(b);
+      }
+      count++;
+    }
+    /** Returns the number of records written. */
+    public long count() { return count; }
+    /** Writes the buffered bytes to the file. */
+    public void flush() throws IOException {
+      buf.flip();
+      while (buf.hasRemaining())
+	channel.write(buf);
+      buf.clear();
+    }
+    /** Flushes the buffer and closes the file. */
+    public void close() throws IOException {
+      try {
+	flush();
+      } finally {
+	channel.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package net.datastructures;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+  * A hash table with linear probing that keeps its keys and values in
+  * two parallel arrays, with no entry object per key: a search compares
+  * keys straight from the key array, and put, get and remove allocate
+  * nothing except when the table grows.  Optionally a third array
+  * caches the hash code of each key, so that most mismatches are
+  * rejected without calling equals and growing calls no hashCode.
+  *
+  * <p>The capacity is a power of two, and the bucket of a key is the low
+  * bits of its hash code after a strong bit mixing, which spreads even
+  * poor hash codes over the table.  Removal shifts the following entries
+  * of the cluster back, so no deactivated buckets are left.  The table
+  * is doubled when its load factor would exceed 0.75.
+  *
+  * <p>The iterables returned by {@link #keys()}, {@link #values()} and
+  * {@link #entries()} are views of the table, not copies, and must not
+  * be used while the map is modified.  To allocate nothing per entry,
+  * the iterator of <tt>entries()</tt> returns the same entry object,
+  * updated, at every step; an entry must be copied to be kept.
+  *
+  * @see HashTableMap
+  */
+public class FlatHashMap<K,V> implements Map<K,V> {
+  /** Maximum load factor, as a fraction of the capacity. */
+  protected static final int LOAD_NUMERATOR = 3, LOAD_DENOMINATOR = 4;
+  protected Object[] keys;	// key of each bucket, null if empty
+  protected Object[] values;	// value of each bucket
+  protected int[] hashes;	// hash code of each key, if cached
+  protected int n = 0;	// number of entries
+  protected int mask;	// capacity - 1
+  protected int threshold;	// size at which the table grows
+  /** Creates a table of capacity 16 without cached hash codes. */
+  public FlatHashMap() { this(16, false); }
+  /** Creates a table that can hold the given number of entries without
+   * growing, caching hash codes or not. */
+  public FlatHashMap(int expected, boolean cacheHashes) {
+    allocate(tableSize(expected), cacheHashes);
+  }
+  /** Returns the number of entries in the table. */
+  public int size() { return n; }
+  /** Returns whether the table is empty. */
+  public boolean isEmpty() { return n == 0; }
+  /** Returns the number of buckets. */
+  public int capacity() { return mask + 1; }
+
+  /** Returns the value associated with a key, or null if none. */
+  public V get(K key) throws InvalidKeyException {
+    checkKey(key);
+    int i = findEntry(key, key.hashCode());
+    return (i < 0) ? null : (V) values[i];
+  }
+  /** Puts a key-value pair in the map, replacing the previous one if it
+   * exists. */
+  public V put(K key, V value) throws InvalidKeyException {
+    checkKey(key);
+    int h = key.hashCode();
+    int i = findEntry(key, h);
+    if (i >= 0) {
+      V old = (V) values[i];
+      values[i] = value;
+      return old;
+    }
+    if (n >= threshold) {
+      grow();
+      i = findEntry(key, h);
+    }
+    i = -i - 1;
+    keys[i] = key;
+    values[i] = value;
+    if (hashes != null) hashes[i] = h;
+    n++;
+    return null;
+  }
+  /** Removes the key-value pair with a specified key, shifting back the
+   * entries that follow it in its cluster. */
+  public V remove(K key) throws InvalidKeyException {
+    checkKey(key);
+    int i = findEntry(key, key.hashCode());
+    if (i < 0) return null;
+    V old = (V) values[i];
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (keys[j] == null) break;
+      int home = mix(hashAt(j)) & mask;
+      // the entry at j may move to the hole at i unless its home lies
+      // cyclically after i, in (i, j]
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+	keys[i] = keys[j];
+	values[i] = values[j];
+	if (hashes != null) hashes[i] = hashes[j];
+	i = j;
+      }
+    }
+    keys[i] = null;
+    values[i] = null;
+    n--;
+    return old;
+  }
+
+  /** Returns an iterable view of the keys. */
+  public Iterable<K> keys() {
+    return new Iterable<K>() {
+      public Iterator<K> iterator() {
+	return new SlotIterator<K>() {
+	  K at(int i) { return (K) keys[i]; }
+	};
+      }
+    };
+  }
+  /** Returns an iterable view of the values. */
+  public Iterable<V> values() {
+    return new Iterable<V>() {
+      public Iterator<V> iterator() {
+	return new SlotIterator<V>() {
+	  V at(int i) { return (V) values[i]; }
+	};
+      }
+    };
+  }
+  /** Returns an iterable view of the entries, whose iterator returns
+   * one reused entry object. */
+  public Iterable<Entry<K,V>> entries() {
+    return new Iterable<Entry<K,V>>() {
+      public Iterator<Entry<K,V>> iterator() {
+	final Cursor cursor = new Cursor();
+	return new SlotIterator<Entry<K,V>>() {
+	  Entry<K,V> at(int i) {
+	    cursor.slot = i;
+	    return cursor;
+	  }
+	};
+      }
+    };
+  }
+  /** Returns a textual representation of the map. */
+  public String toString() {
+    String s = "{";
+    for (int i = 0; i <= mask; i++)
+      if (keys[i] != null)
+	s += ((s.length() > 1) ? ", " : "") + "(" + keys[i] + "," + values[i]
+	  + ")";
+    return s + "}";
+  }
+
+  /** Determines whether a key is valid. */
+  protected void checkKey(K k) {
+    if (k == null) throw new InvalidKeyException("Invalid key: null.");
+  }
+  /** Returns the bucket of a key with hash code h, or -(a + 1) where a
+   * is the empty bucket at which the key would be inserted. */
+  protected int findEntry(K key, int h) throws InvalidKeyException {
+    int i = mix(h) & mask;
+    while (true) {
+      Object k = keys[i];
+      if (k == null)
+	return -(i + 1);
+      if (k == key
+	  || ((hashes == null || hashes[i] == h) && key.equals(k)))
+	return i;
+      i = (i + 1) & mask;
+    }
+  }
+  /** Returns the hash code of the key in bucket i. */
+  protected int hashAt(int i) {
+    return (hashes != null) ? hashes[i] : keys[i].hashCode();
+  }
+  /** Returns the least power-of-two capacity, at least 16, that holds
+   * the given number of entries within the maximum load factor. */
+  protected static int tableSize(int expected) {
+    int cap = 16;
+    while ((long) cap * LOAD_NUMERATOR / LOAD_DENOMINATOR < expected
+	   && cap < (1 << 30))
+      cap <<= 1;
+    return cap;
+  }
+  /** Mixes the bits of a hash code so that its low bits depend on all
+   * of them (the finalizer of MurmurHash3). */
+  protected static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    return h ^ (h >>> 16);
+  }
+  /** Creates empty arrays with the given power-of-two capacity. */
+  protected void allocate(int cap, boolean cacheHashes) {
+    keys = new Object[cap];
+    values = new Object[cap];
+    hashes = cacheHashes ? new int[cap] : null;
+    mask = cap - 1;
+    threshold = (int) ((long) cap * LOAD_NUMERATOR / LOAD_DENOMINATOR);
+  }
+  /** Doubles the capacity and reinserts all the entries. */
+  protected void grow() {
+    if (mask + 1 == (1 << 30))
+      throw new IllegalStateException("Table is full");
+    Object[] oldKeys = keys, oldValues = values;
+    int[] oldHashes = hashes;
+    allocate(2 * (mask + 1), oldHashes != null);
+    for (int j = 0; j < oldKeys.length; j++)
+      if (oldKeys[j] != null) {
+	int h = (oldHashes != null) ? oldHashes[j] : oldKeys[j].hashCode();
+	int i = mix(h) & mask;
+	while (keys[i] != null)	// keys are distinct: find an empty bucket
+	  i = (i + 1) & mask;
+	keys[i] = oldKeys[j];
+	values[i] = oldValues[j];
+	if (hashes != null) hashes[i] = h;
+      }
+  }
+
+  /** Iterator over the occupied buckets of the table. */
+  protected abstract class SlotIterator<T> implements Iterator<T> {
+    final Object[] ks = keys;	// the table when the iterator was made
+    int next = advance(0);	// next occupied bucket, or ks.length
+    /** Returns the element of the iteration for bucket i. */
+    abstract T at(int i);
+    int advance(int i) {
+      while (i < ks.length && ks[i] == null) i++;
+      return i;
+    }
+    public boolean hasNext() { return next < ks.length; }
+    public T next() {
+      if (next >= ks.length) throw new NoSuchElementException();
+      T t = at(next);
+      next = advance(next + 1);
+      return t;
+    }
+    public void remove() { throw new UnsupportedOperationException(); }
+  }
+  /** Entry reused by the iterator of entries() for every bucket. */
+  protected class Cursor implements Entry<K,V> {
+    int slot;
+    public K getKey() { return (K) keys[slot]; }
+    public V getValue() { return (V) values[slot]; }
+    public String toString() { return "(" + getKey() + "," + getValue() + ")"; }
+  }
+}
@@ -0,0 +1,264 @@
+package net.datastructures;
+import java.util.Random;
+
+/**
+ * Benchmarks for the graph classes.  The first argument names the
+ * benchmark to run and the remaining arguments are its parameters:
+ *
+ * <pre>
+ *   memory [vertices] [edges]   heap bytes per vertex and per edge
+ *   csr [vertices] [edges]      neighbor scans, adjacency list vs CSR
+ *   lazy [vertices] [edges]     Dijkstra vs LazyDijkstra, settled vertices
+ *   queues [vertices] [edges]   Dijkstra with each adaptable priority queue
+ *   dense [vertices] [edges]    the same on a dense graph (default 3000
+ *                               vertices, 1500000 edges)
+ * </pre>
+ *
+ * Heap usage is measured with {@link Runtime}, so the figures are
+ * estimates; run with a large heap and no other load for stable results.
+ */
+public class GraphBenchmark {
+  public static void main(String[] argv) {
+    String which = (argv.length > 0) ? argv[0] : "memory";
+    if (which.equals("memory"))
+      memory(intArg(argv, 1, 100000), intArg(argv, 2, 300000));
+    else if (which.equals("csr"))
+      csr(intArg(argv, 1, 1000000), intArg(argv, 2, 4000000));
+    else if (which.equals("lazy"))
+      lazy(intArg(argv, 1, 500000), intArg(argv, 2, 1500000));
+    else if (which.equals("queues"))
+      queues(intArg(argv, 1, 300000), intArg(argv, 2, 1200000));
+    else if (which.equals("dense"))
+      queues(intArg(argv, 1, 3000), intArg(argv, 2, 1500000));
+    else
+      out("Unknown benchmark: " + which);
+  }
+
+  /** Reports the heap footprint of a decoration store and of the
+   * vertices and edges of an adjacency list graph. */
+  public static void memory(int nv, int ne) {
+    int m = Math.min(nv, 20000);	// old-style tables are 4KB each
+    out("Decoration store, bytes per position");
+    out("  HashTableMap, empty:         " + mapBytes(m, false, 0));
+    out("  HashTableMap, 2 decorations: " + mapBytes(m, false, 2));
+    out("  CompactMap, empty:           " + mapBytes(m, true, 0));
+    out("  CompactMap, 2 decorations:   " + mapBytes(m, true, 2));
+    Random r = new Random(42);
+    long base = usedMemory();
+    AdjacencyListGraph<Integer,Integer> g =
+      new AdjacencyListGraph<Integer,Integer>();
+    Vertex<Integer>[] vs = (Vertex<Integer>[]) new Vertex[nv];
+    for (int i = 0; i < nv; i++)
+      vs[i] = g.insertVertex(i);	// small Integers are cached
+    long afterVertices = usedMemory();
+    for (int i = 0; i < ne; i++)
+      g.insertEdge(vs[r.nextInt(nv)], vs[r.nextInt(nv)], 1);
+    long afterEdges = usedMemory();
+    Object status = new Object(), dist = new Object();
+    for (Vertex<Integer> v : g.vertices()) {
+      v.put(status, status);
+      v.put(dist, dist);
+    }
+    for (Edge<Integer> e : g.edges())
+      e.put(status, status);
+    long afterDecorations = usedMemory();
+    out("AdjacencyListGraph with " + g.numVertices() + " vertices and "
+	+ g.numEdges() + " edges");
+    out("  bytes per vertex: " + (afterVertices - base - 4L*nv) / nv);
+    out("  bytes per edge:   " + (afterEdges - afterVertices) / ne);
+    out("  bytes per vertex and edge after DFS-style decoration: "
+	+ (afterDecorations - afterEdges) / (nv + ne));
+  }
+  /** Times full neighbor scans and a connected components DFS on an
+   * adjacency list graph and on its CSR snapshot. */
+  public static void csr(int nv, int ne) {
+    AdjacencyListGraph<Integer,Integer> g = randomGraph(nv, ne, null, 42);
+    long t = System.nanoTime();
+    CSRGraph<Integer,Integer> c = CSRGraph.snapshot(g);
+    out("snapshot: " + ms(t) + " ms");
+    for (int round = 0; round < 3; round++) {
+      long sum = 0;
+      t = System.nanoTime();
+      for (Vertex<Integer> v : g.vertices())
+	for (Edge<Integer> e : g.incidentEdges(v))
+	  sum += g.opposite(v, e).element();
+      out("adjacency list scan: " + ms(t) + " ms (" + sum + ")");
+      sum = 0;
+      t = System.nanoTime();
+      for (Vertex<Integer> v : c.vertices())
+	for (Edge<Integer> e : c.incidentEdges(v))
+	  sum += c.opposite(v, e).element();
+      out("CSR Graph scan:      " + ms(t) + " ms (" + sum + ")");
+      sum = 0;
+      t = System.nanoTime();
+      for (int u = 0; u < c.numVertices(); u++)
+	for (int i = c.incidenceStart(u); i < c.incidenceEnd(u); i++)
+	  sum += c.target(i);
+      out("CSR primitive scan:  " + ms(t) + " ms (" + sum + ")");
+    }
+    components("adjacency list components: ", g);
+    components("CSR components:            ", c);
+  }
+  /** Times a connected components DFS, on a thread with a stack deep
+   * enough for the recursive traversal of a large graph. */
+  protected static void components(final String label,
+				   final Graph<Integer,Integer> g) {
+    Thread th = new Thread(null, new Runnable() {
+      public void run() {
+	long t = System.nanoTime();
+	int k = new ComponentsDFS<Integer,Integer>().execute(g,
+	  g.vertices().iterator().next(), null);
+	out(label + ms(t) + " ms (" + k + ")");
+      }
+    }, "dfs", 1L << 30);
+    th.start();
+    try { th.join(); } catch (InterruptedException e) { }
+  }
+  /** Compares Dijkstra, which queues every vertex up front, with
+   * LazyDijkstra in both queue disciplines, on full searches and on
+   * searches stopped at a near target and at a set of random targets. */
+  public static void lazy(int nv, int ne) {
+    Object weight = new Object();
+    AdjacencyListGraph<Integer,Integer> g = randomGraph(nv, ne, weight, 42);
+    Vertex<Integer>[] vs = (Vertex<Integer>[]) new Vertex[nv];
+    int i = 0;
+    for (Vertex<Integer> v : g.vertices()) vs[i++] = v;
+    Vertex<Integer> s = vs[0];
+    Vertex<Integer> near = s;	// a vertex two hops away from s
+    for (int hop = 0; hop < 2; hop++)
+      for (Edge<Integer> e : g.incidentEdges(near)) {
+	near = g.opposite(near, e);
+	break;
+      }
+    PositionList<Vertex<Integer>> nearSet =
+      new NodePositionList<Vertex<Integer>>();
+    nearSet.addLast(near);
+    PositionList<Vertex<Integer>> randomSet =
+      new NodePositionList<Vertex<Integer>>();
+    Random r = new Random(7);
+    for (int k = 0; k < 10; k++) randomSet.addLast(vs[r.nextInt(nv)]);
+    Dijkstra<Integer,Integer> eager = new Dijkstra<Integer,Integer>();
+    LazyDijkstra<Integer,Integer> replace =
+      new LazyDijkstra<Integer,Integer>(false);
+    LazyDijkstra<Integer,Integer> deletion =
+      new LazyDijkstra<Integer,Integer>(true);
+    for (int round = 0; round < 2; round++) {
+      out("round " + round);
+      long t = System.nanoTime();
+      eager.execute(g, s, weight);
+      out("  Dijkstra.execute           " + ms(t) + " ms, settled " + nv
+	  + ", dist(near) " + eager.getDist(near));
+      lazyRun("  lazy replaceKey, full   ", replace, g, s, weight, null, near);
+      lazyRun("  lazy deletion, full     ", deletion, g, s, weight, null, near);
+      lazyRun("  lazy replaceKey, near   ", replace, g, s, weight, nearSet, near);
+      lazyRun("  lazy deletion, near     ", deletion, g, s, weight, nearSet,
+	      near);
+      lazyRun("  lazy replaceKey, 10 rnd ", replace, g, s, weight, randomSet,
+	      near);
+      lazyRun("  lazy deletion, 10 rnd   ", deletion, g, s, weight, randomSet,
+	      near);
+    }
+  }
+  private static void lazyRun(String label, LazyDijkstra<Integer,Integer> d,
+      Graph<Integer,Integer> g, Vertex<Integer> s, Object weight,
+      Iterable<Vertex<Integer>> targets, Vertex<Integer> near) {
+    long t = System.nanoTime();
+    d.execute(g, s, weight, targets);
+    out(label + "  " + ms(t) + " ms, settled " + d.settledCount()
+	+ ", dist(near) " + d.getDist(near));
+  }
+  /** Times Dijkstra and LazyDijkstra on a random graph with weights in
+   * [1,100] using each adaptable priority queue of the package. */
+  public static void queues(int nv, int ne) {
+    Object weight = new Object();
+    AdjacencyListGraph<Integer,Integer> g = randomGraph(nv, ne, weight, 42);
+    Vertex<Integer> s = g.vertices().iterator().next();
+    String[] names = { "HeapAdaptablePriorityQueue       ",
+		       "RadixHeapAdaptablePriorityQueue  ",
+		       "DaryHeapAdaptablePriorityQueue   ",
+		       "PairingHeapAdaptablePriorityQueue" };
+    Dijkstra<Integer,Integer> eager = new Dijkstra<Integer,Integer>();
+    LazyDijkstra<Integer,Integer> lazy = new LazyDijkstra<Integer,Integer>();
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int q = 0; q < names.length; q++) {
+	eager.setPriorityQueue(newQueue(q));
+	lazy.setPriorityQueue(newQueue(q));
+	long t = System.nanoTime();
+	eager.execute(g, s, weight);
+	long te = ms(t);
+	t = System.nanoTime();
+	lazy.execute(g, s, weight);
+	out("  " + names[q] + "  Dijkstra " + te + " ms, LazyDijkstra "
+	    + ms(t) + " ms");
+      }
+    }
+  }
+  /** Returns a new queue of the given kind: 0 for the default heap. */
+  protected static AdaptablePriorityQueue<Integer,Vertex<Integer>>
+      newQueue(int kind) {
+    switch (kind) {
+    case 1: return new RadixHeapAdaptablePriorityQueue<Vertex<Integer>>();
+    case 2: return new DaryHeapAdaptablePriorityQueue<Integer,Vertex<Integer>>();
+    case 3:
+      return new PairingHeapAdaptablePriorityQueue<Integer,Vertex<Integer>>();
+    default: return null;
+    }
+  }
+  /** Builds a random graph whose vertex elements are 0..nv-1.  If
+   * <tt>weight</tt> is not null, edges get random weights in [1,100]
+   * under that decoration key. */
+  protected static AdjacencyListGraph<Integer,Integer> randomGraph(int nv,
+      int ne, Object weight, long seed) {
+    Random r = new Random(seed);
+    AdjacencyListGraph<Integer,Integer> g =
+      new AdjacencyListGraph<Integer,Integer>();
+    Vertex<Integer>[] vs = (Vertex<Integer>[]) new Vertex[nv];
+    for (int i = 0; i < nv; i++)
+      vs[i] = g.insertVertex(i);
+    for (int i = 0; i < ne; i++) {
+      Edge<Integer> e = g.insertEdge(vs[r.nextInt(nv)], vs[r.nextInt(nv)], i);
+      if (weight != null)
+	e.put(weight, 1 + r.nextInt(100));
+    }
+    return g;
+  }
+
+  /** Measures the bytes retained by an empty decoration store, or by
+   * one holding the given number of decorations. */
+  protected static long mapBytes(int m, boolean compact, int decorations) {
+    Object[] maps = new Object[m];
+    Object[] keys = new Object[decorations];
+    for (int j = 0; j < decorations; j++) keys[j] = new Object();
+    long before = usedMemory();
+    for (int i = 0; i < m; i++) {
+      Map<Object,Object> map = compact ? new CompactMap<Object,Object>()
+				       : new HashTableMap<Object,Object>();
+      for (int j = 0; j < decorations; j++)
+	map.put(keys[j], keys[j]);
+      maps[i] = map;
+    }
+    long bytes = (usedMemory() - before) / m;
+    return (maps[m-1] != null) ? bytes : 0;	// keeps the maps reachable
+  }
+
+  /** Returns the heap in use after a few garbage collections. */
+  protected static long usedMemory() {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+      try { Thread.sleep(20); } catch (InterruptedException e) { }
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+  /** Returns the milliseconds elapsed since the given nanoTime. */
+  protected static long ms(long start) {
+    return (System.nanoTime() - start) / 1000000;
+  }
+  protected static int intArg(String[] argv, int i, int def) {
+    return (argv.length > i) ? Integer.parseInt(argv[i]) : def;
+  }
+  private static void out(String s) {
+    System.out.println(s);
+  }
+}
@@ -1,5 +1,8 @@
 package net.datastructures;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 //begin#fragment Header
 /** A hash table with linear probing and the MAD hash function */
@@ -12,6 +15,11 @@ import java.util.Iterator;
   * the entries are rehashed into a new bucket array with twice the
   * capacity.
   *
+  * <p>The iterables returned by keys(), values() and entries() walk the
+  * bucket array when iterated, without copying it, and their iterators
+  * fail fast with a ConcurrentModificationException if an entry is
+  * added or removed meanwhile.
+  *
   * @author Roberto Tamassia, Michael Goodrich, Eric Zamore
   */
 //begin#fragment Header
@@ -49,6 +57,7 @@ public class HashTableMap<K,V> implements Map<K,V> {
   protected Entry<K,V>[] bucket;// bucket array
   protected long scale, shift;   // the shift and scaling factors
 //end#fragment Header
+  protected int modCount = 0;	// number of additions, removals and rehashes
   /** Creates a hash table with prime factor 109345121 and capacity 1000. */
   public HashTableMap() { this(109345121,1000); }
 //begin#fragment Header
@@ -79,11 +88,16 @@ public class HashTableMap<K,V> implements Map<K,V> {
   public boolean isEmpty() { return (n == 0); }
   /** Returns an iterable object containing all of the keys. */
   public Iterable<K> keys() {
-    PositionList<K> keys = new NodePositionList<K>();
-    for (int i=0; i<capacity; i++) 
-      if ((bucket[i] != null) && (bucket[i] != AVAILABLE)) 
-	keys.addLast(bucket[i].getKey());
-    return keys;
+    return new Iterable<K>() {
+      public Iterator<K> iterator() {
+	final Iterator<Entry<K,V>> it = entryIterator();
+	return new Iterator<K>() {
+	  public boolean hasNext() { return it.hasNext(); }
+	  public K next() { return it.next().getKey(); }
+	  public void remove() { throw new UnsupportedOperationException(); }
+	};
+      }
+    };
   }
   /** Helper search method - returns index of found key or -(a + 1),
    * where a is the index of the first empty or available slot found. */
@@ -128,10 +142,12 @@ public class HashTableMap<K,V> implements Map<K,V> {
     }
     bucket[-i-1] = new HashEntry<K,V>(key, value); // convert to proper index
     n++;
+    modCount++;
     return null; 	// there was no previous value
   }
   /** Doubles the size of the hash table and rehashes all the entries. */
   protected void rehash() {
+    modCount++;
     capacity = 2*capacity;
     Entry<K,V>[] old = bucket;
     bucket = (Entry<K,V>[]) new Entry[capacity]; // new bucket is twice as big 
@@ -153,24 +169,71 @@ public class HashTableMap<K,V> implements Map<K,V> {
     V toReturn = bucket[i].getValue();
     bucket[i] = AVAILABLE; 		// mark this slot as deactivated
     n--;
+    modCount++;
     return toReturn;
   }
 //end#fragment Linear2
   /** Returns an iterable object containing all of the entries. */
   public Iterable<Entry<K,V>> entries() {
-    PositionList<Entry<K,V>> entries = new NodePositionList<Entry<K,V>>();
-    for (int i=0; i<capacity; i++) 
-      if ((bucket[i] != null) && (bucket[i] != AVAILABLE)) 
-	entries.addLast(bucket[i]);
-    return entries;
+    return new Iterable<Entry<K,V>>() {
+      public Iterator<Entry<K,V>> iterator() { return entryIterator(); }
+    };
   }
   /** Returns an iterable object containing all of the values. */
   public Iterable<V> values() {
-    PositionList<V> values = new NodePositionList<V>();
-    for (int i=0; i<capacity; i++) 
-      if ((bucket[i] != null) && (bucket[i] != AVAILABLE)) 
-	values.addLast(bucket[i].getValue());
-    return values;
+    return new Iterable<V>() {
+      public Iterator<V> iterator() {
+	final Iterator<Entry<K,V>> it = entryIterator();
+	return new Iterator<V>() {
+	  public boolean hasNext() { return it.hasNext(); }
+	  public V next() { return it.next().getValue(); }
+	  public void remove() { throw new UnsupportedOperationException(); }
+	};
+      }
+    };
+  }
+  /** Applies an action to the key and value of every entry, allocating
+   * nothing.  The map must not be modified meanwhile. */
+  public void forEach(BiConsumer<? super K,? super V> action) {
+    int expected = modCount;
+    for (int i=0; i<capacity; i++) {
+      Entry<K,V> e = bucket[i];
+      if ((e != null) && (e != AVAILABLE))
+	action.accept(e.getKey(), e.getValue());
+    }
+    if (modCount != expected)
+      throw new ConcurrentModificationException();
+  }
+  /** Returns a fail-fast iterator over the entries of the bucket array. */
+  protected Iterator<Entry<K,V>> entryIterator() {
+    return new EntryIterator(bucket);
+  }
+
+  /** Iterator over the entries of a bucket array, from a given index. */
+  protected class EntryIterator implements Iterator<Entry<K,V>> {
+    protected final int expectedModCount = modCount;
+    protected final Entry<K,V>[] b;	// array walked
+    protected int i;	// index of the next entry in b, or b.length
+    public EntryIterator(Entry<K,V>[] b) { this(b, 0); }
+    public EntryIterator(Entry<K,V>[] b, int from) {
+      this.b = b;
+      advance(from);
+    }
+    /** Moves i to the first entry at or after index j. */
+    protected void advance(int j) {
+      while (j < b.length && (b[j] == null || b[j] == AVAILABLE)) j++;
+      i = j;
+    }
+    public boolean hasNext() { return i < b.length; }
+    public Entry<K,V> next() {
+      if (modCount != expectedModCount)
+	throw new ConcurrentModificationException();
+      if (i >= b.length) throw new NoSuchElementException();
+      Entry<K,V> e = b[i];
+      advance(i + 1);
+      return e;
+    }
+    public void remove() { throw new UnsupportedOperationException(); }
   }
 //begin#fragment Linear2
 } 
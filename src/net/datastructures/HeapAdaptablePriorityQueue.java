@@ -20,6 +20,29 @@ public class HeapAdaptablePriorityQueue<K,V>
   public HeapAdaptablePriorityQueue(Comparator comp) { 
     super(comp);
   }
+  /** Creates a heap with the default comparator holding the given
+   * key-value pairs, built bottom-up in linear time. */
+  public HeapAdaptablePriorityQueue(K[] keys, V[] values) {
+    super(keys, values);
+  }
+  /** Creates a heap with the given comparator holding the given
+   * key-value pairs, built bottom-up in linear time. */
+  public HeapAdaptablePriorityQueue(K[] keys, V[] values, Comparator comp) {
+    super(keys, values, comp);
+  }
+  /** Creates a heap with the given comparator holding the key-value
+   * pairs of the given entries, built bottom-up in linear time. */
+  public HeapAdaptablePriorityQueue(Iterable<? extends Entry<K,V>> entries,
+				    Comparator comp) {
+    super(entries, comp);
+  }
+  /** Adds a location-aware entry after the last node of the heap,
+   * without restoring the heap order. */
+  protected Entry<K,V> append(K k, V v) {
+    LocationAwareEntry<K,V> entry = new LocationAwareEntry<K,V>(k,v);
+    entry.setLocation(heap.add(entry));
+    return entry;
+  }
   /** Inserts a key-value pair and returns the entry created. */
   public Entry<K,V> insert (K k, V v) throws InvalidKeyException {
     checkKey(k);
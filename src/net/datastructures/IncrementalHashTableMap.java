@@ -0,0 +1,205 @@
+package net.datastructures;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+  * A hash table with linear probing and the MAD hash function that
+  * resizes incrementally.  When the load factor reaches 0.5, instead of
+  * reinserting every entry at once, the table allocates a bucket array
+  * twice as large and keeps the old one; from then on every get, put
+  * and remove moves the entries of a few buckets of the old array, 4 by
+  * default, to the new one, until the old array is empty and dropped.
+  * Meanwhile a search looks in the new array and then in the old one,
+  * and a new entry always goes to the new array.  A bucket moved is
+  * marked AVAILABLE, so searches still probe past it in the old array.
+  * Iterating the map walks the new array and then the part of the old
+  * one not moved yet.  A get moves nothing while an iterator made since
+  * the last put or remove may still be in use, so that the map can be
+  * read while it is iterated.
+  *
+  * <p>So no single operation reinserts more than a few entries, though
+  * the one that starts a resize still allocates the new array.  The
+  * longest time taken by one operation that did resizing work is kept
+  * as {@link #maxPauseNanos()}.
+  *
+  * @see HashTableMap
+  */
+public class IncrementalHashTableMap<K,V> extends HashTableMap<K,V> {
+  /** Default number of old buckets moved by each operation. */
+  public static final int DEFAULT_STEP = 4;
+  protected int step;	// old buckets moved by each operation
+  protected Entry<K,V>[] old;	// array being emptied, null if none
+  protected int oldCapacity;	// capacity of the old array
+  protected long oldScale, oldShift;	// MAD factors of the old array
+  protected int next;	// next old bucket to move
+  protected int iteratorModCount = -1;	// modCount at the last iteration
+  protected long maxPause = 0;	// longest resizing operation, in ns
+  /** Creates a hash table with capacity 1000. */
+  public IncrementalHashTableMap() { this(1000); }
+  /** Creates a hash table with the given capacity. */
+  public IncrementalHashTableMap(int cap) { this(cap, DEFAULT_STEP); }
+  /** Creates a hash table with the given capacity, whose operations
+   * move the given number of old buckets while resizing.  A resize
+   * starts with half as many entries as old buckets, and the next one
+   * waits for as many insertions, so a step of at least 2 moves every
+   * old bucket before then.
+   * @throws IllegalArgumentException if the step is less than 2 */
+  public IncrementalHashTableMap(int cap, int step) {
+    super(cap);
+    if (step < 2)
+      throw new IllegalArgumentException("Step must be at least 2");
+    this.step = step;
+  }
+  /** Returns whether a resize is in progress. */
+  public boolean isResizing() { return old != null; }
+  /** Returns the longest time, in nanoseconds, taken by one operation
+   * that did resizing work. */
+  public long maxPauseNanos() { return maxPause; }
+  /** Forgets the longest pause measured so far. */
+  public void resetMaxPause() { maxPause = 0; }
+
+  /** Returns the value associated with a key. */
+  public V get(K key) throws InvalidKeyException {
+    checkKey(key);
+    if (old == null) return super.get(key);
+    long t = System.nanoTime();
+    boolean moving = (modCount != iteratorModCount);	// no live iterator
+    if (moving) migrate(step);
+    V v = super.get(key);
+    if (v == null && old != null) {
+      int j = findOld(key);
+      if (j >= 0) v = old[j].getValue();
+    }
+    if (moving) pause(t);
+    return v;
+  }
+  /** Put a key-value pair in the map, replacing previous one if it exists. */
+  public V put(K key, V value) throws InvalidKeyException {
+    checkKey(key);
+    if (old == null && n < capacity/2) return super.put(key, value);
+    long t = System.nanoTime();
+    if (old != null) migrate(step);
+    int i = findEntry(key);
+    if (i >= 0) {
+      pause(t);
+      return ((HashEntry<K,V>) bucket[i]).setValue(value);
+    }
+    if (old != null) {
+      int j = findOld(key);
+      if (j >= 0) {
+	pause(t);
+	return ((HashEntry<K,V>) old[j]).setValue(value);
+      }
+    }
+    if (n >= capacity/2) {
+      rehash();	// start a resize
+      i = findEntry(key);
+    }
+    bucket[-i-1] = new HashEntry<K,V>(key, value);
+    n++;
+    modCount++;
+    pause(t);
+    return null;
+  }
+  /** Removes the key-value pair with a specified key. */
+  public V remove(K key) throws InvalidKeyException {
+    checkKey(key);
+    if (old == null) return super.remove(key);
+    long t = System.nanoTime();
+    migrate(step);
+    V v = super.remove(key);
+    if (v == null && old != null) {
+      int j = findOld(key);
+      if (j >= 0) {
+	v = old[j].getValue();
+	old[j] = AVAILABLE;
+	n--;
+	modCount++;
+      }
+    }
+    pause(t);
+    return v;
+  }
+  /** Starts a resize: the bucket array becomes the old array and a new
+   * one twice as large is allocated, with new hash factors.  A step of
+   * at least 2 has finished the previous resize by then; this only
+   * makes sure of it. */
+  protected void rehash() {
+    if (old != null) migrate(oldCapacity - next);
+    modCount++;
+    old = bucket;
+    oldCapacity = capacity;
+    oldScale = scale;
+    oldShift = shift;
+    next = 0;
+    capacity = 2*capacity;
+    bucket = (Entry<K,V>[]) new Entry[capacity];
+    java.util.Random rand = new java.util.Random();
+    scale = rand.nextInt(prime-1) + 1;
+    shift = rand.nextInt(prime);
+  }
+  /** Moves the entries of the next k buckets of the old array to the
+   * new one, and drops the old array once it is empty. */
+  protected void migrate(int k) {
+    modCount++;
+    int end = Math.min(oldCapacity, next + k);
+    for (; next < end; next++) {
+      Entry<K,V> e = old[next];
+      if ((e != null) && (e != AVAILABLE)) {
+	bucket[-1 - findEntry(e.getKey())] = e;	// not in the new array
+	old[next] = AVAILABLE;
+      }
+    }
+    if (next == oldCapacity)
+      old = null;
+  }
+  /** Returns the index of a key in the old array, or -1 if it is not
+   * there. */
+  protected int findOld(K key) {
+    int i = (int) ((Math.abs(key.hashCode()*oldScale + oldShift) % prime)
+		   % oldCapacity);
+    int j = i;
+    do {
+      Entry<K,V> e = old[i];
+      if (e == null) return -1;
+      if (key.equals(e.getKey())) return i;
+      i = (i + 1) % oldCapacity;
+    } while (i != j);
+    return -1;
+  }
+  /** Records the time since t as a pause, if it is the longest. */
+  protected void pause(long t) {
+    long d = System.nanoTime() - t;
+    if (d > maxPause) maxPause = d;
+  }
+
+  /** Applies an action to the key and value of every entry, allocating
+   * nothing.  The map must not be modified meanwhile. */
+  public void forEach(BiConsumer<? super K,? super V> action) {
+    iteratorModCount = modCount;
+    int expected = modCount;
+    super.forEach(action);
+    if (old != null)
+      for (int i = next; i < oldCapacity; i++)
+	if ((old[i] != null) && (old[i] != AVAILABLE))
+	  action.accept(old[i].getKey(), old[i].getValue());
+    if (modCount != expected)
+      throw new ConcurrentModificationException();
+  }
+  /** Returns a fail-fast iterator over the entries of the new array and
+   * then over those of the old array not moved yet. */
+  protected Iterator<Entry<K,V>> entryIterator() {
+    iteratorModCount = modCount;
+    if (old == null) return super.entryIterator();
+    final Iterator<Entry<K,V>> first = new EntryIterator(bucket);
+    final Iterator<Entry<K,V>> rest = new EntryIterator(old, next);
+    return new Iterator<Entry<K,V>>() {
+      public boolean hasNext() { return first.hasNext() || rest.hasNext(); }
+      public Entry<K,V> next() {
+	return first.hasNext() ? first.next() : rest.next();
+      }
+      public void remove() { throw new UnsupportedOperationException(); }
+    };
+  }
+}
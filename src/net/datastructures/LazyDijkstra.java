@@ -0,0 +1,158 @@
+package net.datastructures;
+
+/**
+ * Dijkstra's algorithm with lazy insertion: a vertex enters the
+ * priority queue only when it is first reached, instead of all vertices
+ * being inserted with infinite distance before the search starts.  The
+ * search may also stop as soon as every vertex of a given target set is
+ * settled, so a local query explores only the part of the graph closer
+ * to the source than the farthest target.
+ *
+ * <p>Two queue disciplines are available.  By default an adaptable
+ * priority queue is used, and the key of a queued vertex is lowered with
+ * <tt>replaceKey</tt>.  With <i>lazy deletion</i>, a plain priority
+ * queue is used instead: an improved distance is inserted as a new
+ * entry, and outdated entries are skipped when they reach the front.
+ * Either way the queue set with {@link #setPriorityQueue
+ * setPriorityQueue} is used instead of the default heap, if there is one.
+ *
+ * <p>Only vertices reached by the search get the DIST decoration, and
+ * {@link #getDist(Vertex) getDist} returns {@link #INFINITE} for the
+ * others.  The decorations left by one execution are removed at the
+ * start of the next one.
+ *
+ * @see Dijkstra
+ */
+public class LazyDijkstra<V, E> extends Dijkstra<V, E> {
+  /** Whether outdated queue entries are skipped instead of replaced. */
+  protected boolean lazyDeletion;
+  /** Queue of (distance, vertex) entries used with lazy deletion. */
+  protected PriorityQueue<Integer, Vertex<V>> H;
+  /** Decoration key for the vertices of the target set */
+  protected Object TARGET = new Object();
+  /** Vertices decorated by the last execution. */
+  protected PositionList<Vertex<V>> touched;
+  /** Number of targets not settled yet. */
+  protected int remaining;
+  /** Number of vertices settled by the last execution. */
+  protected int settled;
+
+  /** Creates an instance that lowers keys with <tt>replaceKey</tt>. */
+  public LazyDijkstra() { this(false); }
+  /** Creates an instance using lazy deletion if the argument is true,
+   * and <tt>replaceKey</tt> otherwise. */
+  public LazyDijkstra(boolean lazyDeletion) {
+    this.lazyDeletion = lazyDeletion;
+  }
+  /** Executes Dijkstra's algorithm until all reachable vertices are
+    * settled.
+    * @param g Input graph
+    * @param s Source vertex
+    * @param w Weight decoration object */
+  public void execute(Graph<V, E> g, Vertex<V> s, Object w) {
+    execute(g, s, w, null);
+  }
+  /** Executes Dijkstra's algorithm until all the given targets are
+    * settled, or until all reachable vertices are settled if some target
+    * is unreachable.
+    * @param g Input graph
+    * @param s Source vertex
+    * @param w Weight decoration object
+    * @param targets Target vertices, or null to settle all vertices */
+  public void execute(Graph<V, E> g, Vertex<V> s, Object w,
+		      Iterable<Vertex<V>> targets) {
+    clear();
+    graph = g;
+    WEIGHT = w;
+    if (!lazyDeletion)
+      Q = newPriorityQueue();
+    else if (userQ != null)
+      H = newPriorityQueue();	// used as a plain priority queue
+    else
+      H = new HeapPriorityQueue<Integer, Vertex<V>>(
+	new DefaultComparator<Integer>());
+    remaining = -1;	// no target set: never stop early
+    if (targets != null) {
+      remaining = 0;
+      for (Vertex<V> t : targets)
+	if (t.put(TARGET, TARGET) == null)
+	  remaining++;
+    }
+    try {
+      if (remaining != 0)
+	dijkstraVisit(s);
+    } finally {
+      if (targets != null)
+	for (Vertex<V> t : targets)
+	  t.remove(TARGET);
+      if (userQ != null)	// leave the user's queue empty for reuse
+	while (!userQ.isEmpty())
+	  userQ.removeMin();
+      H = null;
+      Q = null;
+    }
+  }
+  /** Returns the distance of a vertex from the source, or
+   * {@link #INFINITE} if the vertex was not settled. */
+  public int getDist(Vertex<V> u) {
+    Integer d = (Integer) u.get(DIST);
+    return (d == null) ? INFINITE : d;
+  }
+  /** Returns the number of vertices settled by the last execution. */
+  public int settledCount() { return settled; }
+  /** Removes the decorations left by the last execution. */
+  public void clear() {
+    if (touched != null)
+      for (Vertex<V> u : touched) {
+	u.remove(DIST);
+	u.remove(ENTRY);
+      }
+    touched = new NodePositionList<Vertex<V>>();
+    settled = 0;
+  }
+
+  /** The actual execution of Dijkstra's algorithm.
+    * @param v source vertex.
+    */
+  protected void dijkstraVisit(Vertex<V> v) {
+    touched.addLast(v);
+    v.put(ENTRY, insert(0, v));
+    while (lazyDeletion ? !H.isEmpty() : !Q.isEmpty()) {
+      // remove from the queue a vertex with minimum distance
+      Entry<Integer, Vertex<V>> u_entry = lazyDeletion ? H.removeMin()
+						       : Q.removeMin();
+      Vertex<V> u = u_entry.getValue();
+      if (u.get(DIST) != null)
+	continue;	// outdated entry of a settled vertex (lazy deletion)
+      int u_dist = u_entry.getKey();
+      u.put(DIST, u_dist);	// the distance of u is final
+      u.remove(ENTRY);
+      settled++;
+      if (remaining > 0 && u.get(TARGET) != null && --remaining == 0)
+	break;	// all targets are settled
+      // examine all the neighbors of u and update their distances
+      for (Edge<E> e : graph.incidentEdges(u)) {
+	Vertex<V> z = graph.opposite(u, e);
+	if (z.get(DIST) != null)
+	  continue;	// z is in the cloud
+	int z_dist = u_dist + (Integer) e.get(WEIGHT);
+	Entry<Integer, Vertex<V>> z_entry
+	  = (Entry<Integer, Vertex<V>>) z.get(ENTRY);
+	if (z_entry == null) {	// z is discovered now
+	  touched.addLast(z);
+	  z.put(ENTRY, insert(z_dist, z));
+	}
+	else if (z_dist < z_entry.getKey()) {	// relaxation of e = (u,z)
+	  if (lazyDeletion)
+	    z.put(ENTRY, H.insert(z_dist, z));	// the old entry is outdated
+	  else
+	    Q.replaceKey(z_entry, z_dist);
+	}
+      }
+    }
+  }
+  /** Inserts a vertex in the queue of the current discipline. */
+  protected Entry<Integer, Vertex<V>> insert(int dist, Vertex<V> u) {
+    return lazyDeletion ? H.insert(dist, u) : Q.insert(dist, u);
+  }
+}
@@ -0,0 +1,200 @@
+package net.datastructures;
+
+/**
+  * A hash table from long keys to object values, kept in a long and an
+  * object array so that no key is ever boxed.  It uses linear probing
+  * over a power-of-two capacity, with a 64-bit bit mixing, and removal
+  * shifts the following entries of the cluster back.  The key 0 marks
+  * an empty bucket, so an entry with key 0 is kept apart from the
+  * arrays.
+  *
+  * <p>Values may be null, and get, put and remove return a chosen
+  * <i>no value</i>, null by default, when the key is absent; use {@link
+  * #containsKey containsKey} when that value may also be stored.  The
+  * entries are visited with {@link #forEach forEach} and a {@link
+  * Procedure}, which passes keys unboxed.
+  *
+  * @see IntIntMap
+  * @see IntLongMap
+  */
+public class LongObjectMap<V> {
+  /** Procedure applied to the entries of the map by forEach. */
+  public interface Procedure<V> {
+    /** Visits an entry and returns whether to go on with the others. */
+    public boolean apply(long key, V value);
+  }
+  protected long[] keys;	// key of each bucket, 0 if empty
+  protected Object[] values;	// value of each bucket
+  protected int n = 0;	// number of entries, including key 0
+  protected int mask;	// capacity - 1
+  protected int threshold;	// entries in the arrays at which they grow
+  protected boolean hasZero = false;	// whether key 0 is in the map
+  protected V zeroValue;	// value of key 0
+  protected final V noValue;	// returned for absent keys
+  /** Creates an empty map with no value null. */
+  public LongObjectMap() { this(16, null); }
+  /** Creates a map that can hold the given number of entries without
+   * growing, returning the given value for absent keys. */
+  public LongObjectMap(int expected, V noValue) {
+    this.noValue = noValue;
+    allocate(FlatHashMap.tableSize(expected));
+  }
+  /** Returns the number of entries in the map. */
+  public int size() { return n; }
+  /** Returns whether the map is empty. */
+  public boolean isEmpty() { return n == 0; }
+  /** Returns the value returned for absent keys. */
+  public V noValue() { return noValue; }
+  /** Returns the number of buckets. */
+  public int capacity() { return mask + 1; }
+
+  /** Returns whether the map has an entry with the given key. */
+  public boolean containsKey(long key) {
+    return (key == 0) ? hasZero : findEntry(key) >= 0;
+  }
+  /** Returns the value associated with a key, or the no value if none. */
+  public V get(long key) {
+    if (key == 0) return hasZero ? zeroValue : noValue;
+    int i = findEntry(key);
+    return (i < 0) ? noValue : (V) values[i];
+  }
+  /** Puts a key-value pair in the map and returns the previous value of
+   * the key, or the no value if none. */
+  public V put(long key, V value) {
+    if (key == 0) {
+      V old = hasZero ? zeroValue : noValue;
+      if (!hasZero) n++;
+      hasZero = true;
+      zeroValue = value;
+      return old;
+    }
+    int i = findEntry(key);
+    if (i >= 0) {
+      V old = (V) values[i];
+      values[i] = value;
+      return old;
+    }
+    if (n - (hasZero ? 1 : 0) >= threshold) {
+      grow();
+      i = findEntry(key);
+    }
+    i = -i - 1;
+    keys[i] = key;
+    values[i] = value;
+    n++;
+    return noValue;
+  }
+  /** Removes the entry with a key and returns its value, or the no
+   * value if none. */
+  public V remove(long key) {
+    if (key == 0) {
+      if (!hasZero) return noValue;
+      V old = zeroValue;
+      hasZero = false;
+      zeroValue = null;
+      n--;
+      return old;
+    }
+    int i = findEntry(key);
+    if (i < 0) return noValue;
+    V old = (V) values[i];
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (keys[j] == 0) break;
+      int home = mix(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {	// may fill the hole
+	keys[i] = keys[j];
+	values[i] = values[j];
+	i = j;
+      }
+    }
+    keys[i] = 0;
+    values[i] = null;
+    n--;
+    return old;
+  }
+  /** Removes all the entries, keeping the capacity. */
+  public void clear() {
+    java.util.Arrays.fill(keys, 0);
+    java.util.Arrays.fill(values, null);
+    hasZero = false;
+    zeroValue = null;
+    n = 0;
+  }
+  /** Applies a procedure to the entries, in no particular order, until
+   * it returns false; returns whether it was applied to all of them.
+   * The map must not be modified meanwhile. */
+  public boolean forEach(Procedure<? super V> p) {
+    if (hasZero && !p.apply(0, zeroValue)) return false;
+    for (int i = 0; i <= mask; i++)
+      if (keys[i] != 0 && !p.apply(keys[i], (V) values[i])) return false;
+    return true;
+  }
+  /** Returns a new array of the keys, in no particular order. */
+  public long[] keys() {
+    long[] a = new long[n];
+    int k = 0;
+    if (hasZero) a[k++] = 0;
+    for (int i = 0; i <= mask; i++)
+      if (keys[i] != 0) a[k++] = keys[i];
+    return a;
+  }
+  /** Returns a textual representation of the map. */
+  public String toString() {
+    final StringBuilder s = new StringBuilder("{");
+    forEach(new Procedure<V>() {
+	public boolean apply(long key, V value) {
+	  if (s.length() > 1) s.append(", ");
+	  s.append("(").append(key).append(",").append(value).append(")");
+	  return true;
+	}
+      });
+    return s.append("}").toString();
+  }
+
+  /** Returns the bucket of a nonzero key, or -(a + 1) where a is the
+   * empty bucket at which it would be inserted. */
+  protected int findEntry(long key) {
+    int i = mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == key) return i;
+      if (k == 0) return -(i + 1);
+      i = (i + 1) & mask;
+    }
+  }
+  /** Mixes the bits of a long so that the low bits of the result depend
+   * on all of them (the 64-bit finalizer of MurmurHash3). */
+  protected static int mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    return (int) (h ^ (h >>> 33));
+  }
+  /** Creates empty arrays with the given power-of-two capacity. */
+  protected void allocate(int cap) {
+    keys = new long[cap];
+    values = new Object[cap];
+    mask = cap - 1;
+    threshold = (int) ((long) cap * FlatHashMap.LOAD_NUMERATOR
+		       / FlatHashMap.LOAD_DENOMINATOR);
+  }
+  /** Doubles the capacity and reinserts all the entries. */
+  protected void grow() {
+    if (mask + 1 == (1 << 30))
+      throw new IllegalStateException("Table is full");
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(2 * (mask + 1));
+    for (int j = 0; j < oldKeys.length; j++)
+      if (oldKeys[j] != 0) {
+	int i = mix(oldKeys[j]) & mask;
+	while (keys[i] != 0)	// keys are distinct: find an empty bucket
+	  i = (i + 1) & mask;
+	keys[i] = oldKeys[j];
+	values[i] = oldValues[j];
+      }
+  }
+}
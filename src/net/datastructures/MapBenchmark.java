@@ -0,0 +1,603 @@
+package net.datastructures;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Benchmarks for the maps.  The first argument names the benchmark to
+ * run and the remaining arguments are its parameters:
+ *
+ * <pre>
+ *   churn [n] [ops]   a table of n keys under ops remove/insert pairs of
+ *                     fresh keys, then lookups of present and absent keys
+ *   flat [n]          puts, hits, misses and removals of n keys in the
+ *                     entry-based tables and in FlatHashMap, with the
+ *                     bytes allocated and retained
+ *   primitive [n]     puts, hits, misses and removals of n int keys with
+ *                     int values, and of n long keys with object values,
+ *                     in the boxed maps and in the primitive ones
+ *   resize [n]        the latency of each of n puts into a growing
+ *                     HashTableMap and IncrementalHashTableMap
+ *   concurrent [maxThreads] [ops]
+ *                     throughput of 1, 2, 4, ... maxThreads threads doing
+ *                     ops operations each on a synchronized HashTableMap
+ *                     and on ConcurrentHashTableMap, read- and write-heavy
+ *   iterate [n] [passes]
+ *                     passes over the keys, values and entries of a
+ *                     HashTableMap of n entries, with the bytes allocated
+ *   mapped [n]        building n entries in a HashTableMap and in a
+ *                     MappedHashMap, reopening the latter and reading it
+ *   cuckoo [slots]    latency percentiles of single gets, half of them
+ *                     misses, in tables of the given number of slots
+ *                     filled to high load factors
+ *   collide [n]       puts and gets of n distinct strings of the same hash
+ *                     code in HashTableMap and CuckooHashMap
+ * </pre>
+ */
+public class MapBenchmark {
+  public static void main(String[] argv)
+    throws InterruptedException, IOException {
+    String which = (argv.length > 0) ? argv[0] : "churn";
+    if (which.equals("churn"))
+      churn(intArg(argv, 1, 200000), intArg(argv, 2, 2000000));
+    else if (which.equals("flat"))
+      flat(intArg(argv, 1, 2000000));
+    else if (which.equals("primitive"))
+      primitive(intArg(argv, 1, 2000000));
+    else if (which.equals("resize"))
+      resize(intArg(argv, 1, 4000000));
+    else if (which.equals("concurrent"))
+      concurrent(intArg(argv, 1, 8), intArg(argv, 2, 1000000));
+    else if (which.equals("iterate"))
+      iterate(intArg(argv, 1, 1000000), intArg(argv, 2, 20));
+    else if (which.equals("mapped"))
+      mapped(intArg(argv, 1, 2000000));
+    else if (which.equals("cuckoo"))
+      cuckoo(intArg(argv, 1, 1 << 21));
+    else if (which.equals("collide"))
+      collide(intArg(argv, 1, 4096));
+    else
+      out("Unknown benchmark: " + which);
+  }
+
+  /** Compares HashTableMap with the Robin Hood table at several maximum
+   * loads on a churn workload: n keys are inserted, then ops times the
+   * oldest key is removed and a fresh one inserted, so the size stays n
+   * while every key passes through the table once; then every present
+   * key and as many absent keys are looked up. */
+  public static void churn(int n, int ops) {
+    Integer[] keys = randomKeys(n + ops + n, 42); // the last n are absent
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      runChurn("HashTableMap              ",
+	       new HashTableMap<Integer,Integer>(), keys, n, ops);
+      for (double load : new double[] { 0.5, 0.75, 0.9 }) {
+	RobinHoodHashTableMap<Integer,Integer> m =
+	  new RobinHoodHashTableMap<Integer,Integer>(1000, load);
+	runChurn("RobinHoodHashTableMap " + load + " ", m, keys, n, ops);
+	int[] h = m.probeLengthHistogram();
+	out("      probe lengths: average "
+	    + String.format("%.2f", m.averageProbeLength()) + ", max "
+	    + (h.length - 1) + ", histogram " + histogram(h));
+      }
+    }
+  }
+  /** Runs the churn workload on one map. */
+  protected static void runChurn(String label, Map<Integer,Integer> m,
+				 Integer[] keys, int n, int ops) {
+    long t = System.nanoTime();
+    for (int i = 0; i < n; i++) m.put(keys[i], keys[i]);
+    long fill = ms(t);
+    t = System.nanoTime();
+    for (int i = 0; i < ops; i++) {
+      m.remove(keys[i]);
+      m.put(keys[n + i], keys[i]);
+    }
+    long churn = ms(t);
+    t = System.nanoTime();
+    long found = 0;
+    for (int i = ops; i < ops + n; i++)
+      if (m.get(keys[i]) != null) found++;
+    long hits = ms(t);
+    t = System.nanoTime();
+    for (int i = n + ops; i < keys.length; i++)
+      if (m.get(keys[i]) != null) found++;
+    out("  " + label + " fill " + fill + " ms, churn " + churn
+	+ " ms, hits " + hits + " ms, misses " + ms(t) + " ms  (" + found
+	+ " found, size " + m.size() + ")");
+  }
+
+  /** Compares the tables on n keys: the time of n puts, n successful
+   * and n unsuccessful gets and n removals, the bytes allocated per put
+   * and per get, and the bytes retained per entry once full. */
+  public static void flat(int n) {
+    Integer[] keys = randomKeys(2*n, 42); // the last n are absent
+    String[] names = { "HashTableMap         ", "RobinHoodHashTableMap",
+		       "FlatHashMap          ", "FlatHashMap (hashes) " };
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int kind = 0; kind < names.length; kind++) {
+	long before = GraphBenchmark.usedMemory();
+	Map<Integer,Integer> m = newMap(kind);
+	long bytes = PriorityQueueBenchmark.allocatedBytes();
+	long t = System.nanoTime();
+	for (int i = 0; i < n; i++) m.put(keys[i], keys[i]);
+	long put = ms(t);
+	long putBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+	long retained = GraphBenchmark.usedMemory() - before;
+	bytes = PriorityQueueBenchmark.allocatedBytes();
+	t = System.nanoTime();
+	long found = 0;
+	for (int i = 0; i < n; i++)
+	  if (m.get(keys[i]) != null) found++;
+	long hits = ms(t);
+	t = System.nanoTime();
+	for (int i = n; i < 2*n; i++)
+	  if (m.get(keys[i]) != null) found++;
+	long misses = ms(t);
+	long getBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+	t = System.nanoTime();
+	for (int i = 0; i < n; i++) m.remove(keys[i]);
+	out("  " + names[kind] + "  put " + put + " ms, hits " + hits
+	    + " ms, misses " + misses + " ms, remove " + ms(t) + " ms;  "
+	    + putBytes / n + " B/put, " + getBytes / (2*n) + " B/get, "
+	    + retained / n + " B/entry  (" + found + ")");
+      }
+    }
+  }
+  /** Returns an empty map of the given kind: 0 for HashTableMap, 1 for
+   * RobinHoodHashTableMap, 2 for FlatHashMap and 3 for FlatHashMap with
+   * cached hash codes. */
+  protected static Map<Integer,Integer> newMap(int kind) {
+    switch (kind) {
+    case 0: return new HashTableMap<Integer,Integer>();
+    case 1: return new RobinHoodHashTableMap<Integer,Integer>();
+    case 2: return new FlatHashMap<Integer,Integer>();
+    default: return new FlatHashMap<Integer,Integer>(16, true);
+    }
+  }
+  /** Compares the boxed maps with IntIntMap on n int keys with int
+   * values, and with LongObjectMap on n long keys with object values,
+   * timing n puts, n successful and n unsuccessful gets and n removals
+   * and measuring the bytes allocated by the puts and the gets. */
+  public static void primitive(int n) {
+    Integer[] boxed = randomKeys(2*n, 42); // the last n are absent
+    int[] ints = new int[2*n];
+    long[] longs = new long[2*n];
+    Long[] boxedLongs = new Long[2*n];
+    for (int i = 0; i < 2*n; i++) {
+      ints[i] = boxed[i];
+      longs[i] = ((long) ints[i] << 32) ^ i;
+      boxedLongs[i] = longs[i];
+    }
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      intMap("HashTableMap<Integer,Integer>",
+	     new HashTableMap<Integer,Integer>(), ints);
+      intMap("FlatHashMap<Integer,Integer> ",
+	     new FlatHashMap<Integer,Integer>(), ints);
+      IntIntMap m = new IntIntMap();
+      long bytes = PriorityQueueBenchmark.allocatedBytes();
+      long t = System.nanoTime();
+      for (int i = 0; i < n; i++) m.put(ints[i], i);
+      long put = ms(t);
+      long putBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+      bytes = PriorityQueueBenchmark.allocatedBytes();
+      t = System.nanoTime();
+      long sum = 0;
+      for (int i = 0; i < n; i++) sum += m.get(ints[i]);
+      long hits = ms(t);
+      t = System.nanoTime();
+      for (int i = n; i < 2*n; i++) sum += m.get(ints[i]);
+      long misses = ms(t);
+      long getBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+      t = System.nanoTime();
+      for (int i = 0; i < n; i++) m.remove(ints[i]);
+      report("IntIntMap                    ", put, hits, misses, ms(t),
+	     putBytes, getBytes, n, sum);
+
+      HashTableMap<Long,Object> b = new HashTableMap<Long,Object>();
+      bytes = PriorityQueueBenchmark.allocatedBytes();
+      t = System.nanoTime();
+      for (int i = 0; i < n; i++) b.put(longs[i], boxed[i]);	// boxes key
+      put = ms(t);
+      putBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+      bytes = PriorityQueueBenchmark.allocatedBytes();
+      t = System.nanoTime();
+      sum = 0;
+      for (int i = 0; i < n; i++) if (b.get(longs[i]) != null) sum++;
+      hits = ms(t);
+      t = System.nanoTime();
+      for (int i = n; i < 2*n; i++) if (b.get(longs[i]) != null) sum++;
+      misses = ms(t);
+      getBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+      t = System.nanoTime();
+      for (int i = 0; i < n; i++) b.remove(boxedLongs[i]);
+      report("HashTableMap<Long,Object>    ", put, hits, misses, ms(t),
+	     putBytes, getBytes, n, sum);
+
+      LongObjectMap<Object> o = new LongObjectMap<Object>();
+      bytes = PriorityQueueBenchmark.allocatedBytes();
+      t = System.nanoTime();
+      for (int i = 0; i < n; i++) o.put(longs[i], boxed[i]);
+      put = ms(t);
+      putBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+      bytes = PriorityQueueBenchmark.allocatedBytes();
+      t = System.nanoTime();
+      sum = 0;
+      for (int i = 0; i < n; i++) if (o.get(longs[i]) != null) sum++;
+      hits = ms(t);
+      t = System.nanoTime();
+      for (int i = n; i < 2*n; i++) if (o.get(longs[i]) != null) sum++;
+      misses = ms(t);
+      getBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+      t = System.nanoTime();
+      for (int i = 0; i < n; i++) o.remove(longs[i]);
+      report("LongObjectMap<Object>        ", put, hits, misses, ms(t),
+	     putBytes, getBytes, n, sum);
+    }
+  }
+  /** Runs the int workload on a boxed map; every key and value passed
+   * is boxed by the call, as in code that keeps ints. */
+  protected static void intMap(String label, Map<Integer,Integer> m,
+			       int[] ints) {
+    int n = ints.length / 2;
+    long bytes = PriorityQueueBenchmark.allocatedBytes();
+    long t = System.nanoTime();
+    for (int i = 0; i < n; i++) m.put(ints[i], i);
+    long put = ms(t);
+    long putBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+    bytes = PriorityQueueBenchmark.allocatedBytes();
+    t = System.nanoTime();
+    long sum = 0;
+    for (int i = 0; i < n; i++) sum += m.get(ints[i]);
+    long hits = ms(t);
+    t = System.nanoTime();
+    for (int i = n; i < 2*n; i++) if (m.get(ints[i]) != null) sum++;
+    long misses = ms(t);
+    long getBytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+    t = System.nanoTime();
+    for (int i = 0; i < n; i++) m.remove(ints[i]);
+    report(label, put, hits, misses, ms(t), putBytes, getBytes, n, sum);
+  }
+  /** Prints the times and allocations of one map. */
+  private static void report(String label, long put, long hits, long misses,
+			     long remove, long putBytes, long getBytes, int n,
+			     long check) {
+    out("  " + label + "  put " + put + " ms, hits " + hits + " ms, misses "
+	+ misses + " ms, remove " + remove + " ms;  " + putBytes / n
+	+ " B/put, " + getBytes / (2*n) + " B/get  (" + check + ")");
+  }
+  /** Times each of n puts of fresh keys into a table that starts small
+   * and grows, for HashTableMap and for IncrementalHashTableMap, and
+   * prints the total time and percentiles of the put latency. */
+  public static void resize(int n) {
+    Integer[] keys = randomKeys(n, 42);
+    long[] lat = new long[n];
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int kind = 0; kind < 2; kind++) {
+	HashTableMap<Integer,Integer> m = (kind == 0)
+	  ? new HashTableMap<Integer,Integer>()
+	  : new IncrementalHashTableMap<Integer,Integer>();
+	GraphBenchmark.usedMemory();	// start with a collected heap
+	long total = System.nanoTime();
+	for (int i = 0; i < n; i++) {
+	  long t = System.nanoTime();
+	  m.put(keys[i], keys[i]);
+	  lat[i] = System.nanoTime() - t;
+	}
+	total = ms(total);
+	Sort.radixSort(lat);
+	String pause = (kind == 0) ? "" : ", max resizing pause "
+	  + ((IncrementalHashTableMap<Integer,Integer>) m).maxPauseNanos() / 1000
+	  + " us";
+	out("  " + ((kind == 0) ? "HashTableMap           " : "IncrementalHashTableMap")
+	    + "  total " + total + " ms;  put latency p50 " + lat[n/2]
+	    + " ns, p99.9 " + lat[(int) (n * 0.999)] / 1000 + " us, p99.99 "
+	    + lat[(int) (n * 0.9999)] / 1000 + " us, max " + lat[n-1] / 1000
+	    + " us" + pause);
+      }
+    }
+  }
+  /** Runs ops random operations in each of p threads, for p = 1, 2,
+   * 4, ... maxThreads, on a synchronized HashTableMap and on a
+   * ConcurrentHashTableMap holding half of 1M keys, with 90% gets in the
+   * read-heavy mix and 50% in the write-heavy one, the rest split
+   * evenly between puts and removes.  The speedup is bounded by the
+   * number of available processors. */
+  public static void concurrent(int maxThreads, int ops) throws InterruptedException {
+    out(Runtime.getRuntime().availableProcessors() + " processors available");
+    int keyCount = 1000000;
+    Integer[] keys = randomKeys(keyCount, 42);
+    for (int round = 0; round < 2; round++) {
+      out("round " + round);
+      for (int reads : new int[] { 90, 50 }) {
+	out("  " + reads + "% gets");
+	for (int p = 1; p <= maxThreads; p *= 2)
+	  for (int kind = 0; kind < 2; kind++) {
+	    Map<Integer,Integer> m = (kind == 0)
+	      ? new SynchronizedMap<Integer,Integer>(new HashTableMap<Integer,Integer>())
+	      : new ConcurrentHashTableMap<Integer,Integer>();
+	    for (int i = 0; i < keyCount; i += 2) m.put(keys[i], keys[i]);
+	    long t = runThreads(m, keys, p, ops, reads);
+	    out("    " + ((kind == 0) ? "synchronized HashTableMap" : "ConcurrentHashTableMap   ")
+		+ " " + p + " threads  " + t + " ms, "
+		+ String.format("%.1f", (double) p * ops / t / 1000)
+		+ " Mops/s");
+	  }
+      }
+    }
+  }
+  /** Runs the mixed workload in p threads started together and returns
+   * the milliseconds until the last one ends. */
+  protected static long runThreads(final Map<Integer,Integer> m,
+				   final Integer[] keys, int p, final int ops,
+				   final int reads) throws InterruptedException {
+    final java.util.concurrent.CountDownLatch start =
+      new java.util.concurrent.CountDownLatch(1);
+    Thread[] threads = new Thread[p];
+    for (int i = 0; i < p; i++) {
+      final int seed = i + 1;
+      threads[i] = new Thread(new Runnable() {
+	  public void run() {
+	    int x = seed * 0x9e3779b9;	// xorshift state of this thread
+	    try { start.await(); } catch (InterruptedException e) { return; }
+	    for (int j = 0; j < ops; j++) {
+	      x ^= x << 13; x ^= x >>> 17; x ^= x << 5;
+	      Integer k = keys[(int) (((x >>> 1) * (long) keys.length) >>> 31)];
+	      x ^= x << 13; x ^= x >>> 17; x ^= x << 5;	// independent bits
+	      int op = (int) (((x >>> 1) * 100L) >>> 31);
+	      if (op < reads) m.get(k);
+	      else if (op < reads + (100 - reads) / 2) m.put(k, k);
+	      else m.remove(k);
+	    }
+	  }
+	});
+      threads[i].start();
+    }
+    long t = System.nanoTime();
+    start.countDown();
+    for (Thread th : threads) th.join();
+    return Math.max(1, ms(t));
+  }
+  /** Map whose operations all hold the lock of the map. */
+  protected static class SynchronizedMap<K,V> implements Map<K,V> {
+    protected final Map<K,V> m;
+    SynchronizedMap(Map<K,V> m) { this.m = m; }
+    public synchronized int size() { return m.size(); }
+    public synchronized boolean isEmpty() { return m.isEmpty(); }
+    public synchronized V get(K k) { return m.get(k); }
+    public synchronized V put(K k, V v) { return m.put(k, v); }
+    public synchronized V remove(K k) { return m.remove(k); }
+    public synchronized Iterable<K> keys() { return m.keys(); }
+    public synchronized Iterable<V> values() { return m.values(); }
+    public synchronized Iterable<Entry<K,V>> entries() { return m.entries(); }
+  }
+  /** Times passes over a HashTableMap of n entries through its keys,
+   * values and entries and through forEach, and measures the bytes each
+   * pass allocates; copying the entries into a NodePositionList, as the
+   * iterables used to, is timed for comparison. */
+  public static void iterate(int n, int passes) {
+    Integer[] keys = randomKeys(n, 42);
+    HashTableMap<Integer,Integer> m = new HashTableMap<Integer,Integer>();
+    for (int i = 0; i < n; i++) m.put(keys[i], keys[i]);
+    final long[] sum = new long[1];
+    BiConsumer<Integer,Integer> add = new BiConsumer<Integer,Integer>() {
+      public void accept(Integer k, Integer v) { sum[0] += v; }
+    };
+    String[] names = { "copy into NodePositionList", "keys()                    ",
+		       "values()                  ", "entries()                 ",
+		       "forEach                   " };
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int kind = 0; kind < names.length; kind++) {
+	long bytes = PriorityQueueBenchmark.allocatedBytes();
+	long t = System.nanoTime();
+	for (int p = 0; p < passes; p++) {
+	  if (kind == 0) {
+	    PositionList<Entry<Integer,Integer>> copy =
+	      new NodePositionList<Entry<Integer,Integer>>();
+	    for (Entry<Integer,Integer> e : m.entries()) copy.addLast(e);
+	    for (Entry<Integer,Integer> e : copy) sum[0] += e.getValue();
+	  }
+	  else if (kind == 1)
+	    for (Integer k : m.keys()) sum[0] += k;
+	  else if (kind == 2)
+	    for (Integer v : m.values()) sum[0] += v;
+	  else if (kind == 3)
+	    for (Entry<Integer,Integer> e : m.entries()) sum[0] += e.getValue();
+	  else
+	    m.forEach(add);
+	}
+	long time = ms(t);
+	bytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+	out("  " + names[kind] + "  " + time / passes + " ms, "
+	    + bytes / passes + " bytes per pass");
+      }
+    }
+    out("(" + sum[0] + ")");
+  }
+  /** Builds a table of n random long keys and values in the heap, as a
+   * process would at every start, and in a MappedHashMap, whose files
+   * are then forced, closed and reopened; prints the times, the heap
+   * retained, and the time of n gets in the reopened table. */
+  public static void mapped(int n) throws IOException {
+    Random r = new Random(42);
+    long[] keys = new long[n];
+    for (int i = 0; i < n; i++) keys[i] = r.nextLong();
+    RecordCodec<Long> codec = new SortBenchmark.LongCodec();
+    File base = File.createTempFile("mapped", "");
+    base.delete();
+    File idx = new File(base.getPath() + ".idx");
+    File dat = new File(base.getPath() + ".dat");
+    idx.deleteOnExit();
+    dat.deleteOnExit();
+    for (int round = 0; round < 2; round++) {
+      out("round " + round);
+      long before = GraphBenchmark.usedMemory();
+      long t = System.nanoTime();
+      HashTableMap<Long,Long> heap = new HashTableMap<Long,Long>();
+      for (int i = 0; i < n; i++) heap.put(keys[i], keys[i]);
+      long build = ms(t);
+      long bytes = GraphBenchmark.usedMemory() - before;
+      out("  HashTableMap   build " + build + " ms, heap " + bytes / n
+	  + " B/entry" + ((heap.size() == n) ? "" : " (lost entries)"));
+      heap = null;
+
+      idx.delete();
+      dat.delete();
+      t = System.nanoTime();
+      MappedHashMap<Long,Long> m = new MappedHashMap<Long,Long>(base, codec,
+								 codec);
+      for (int i = 0; i < n; i++) m.put(keys[i], keys[i]);
+      build = ms(t);
+      t = System.nanoTime();
+      m.close();
+      long close = ms(t);
+      before = GraphBenchmark.usedMemory();
+      t = System.nanoTime();
+      m = new MappedHashMap<Long,Long>(base, codec, codec);
+      long open = ms(t);
+      bytes = GraphBenchmark.usedMemory() - before;
+      t = System.nanoTime();
+      long found = 0;
+      for (int i = 0; i < n; i++)
+	if (m.get(keys[i]) != null) found++;
+      long gets = ms(t);
+      out("  MappedHashMap  build " + build + " ms, force and close " + close
+	  + " ms, reopen " + open + " ms (" + bytes / 1024 + " KB heap), "
+	  + n + " gets " + gets + " ms  (" + found + " found, files "
+	  + (idx.length() + dat.length()) / (1 << 20) + " MB)");
+      m.close();
+    }
+    idx.delete();
+    dat.delete();
+  }
+  /** Times single gets, half of present and half of absent keys in
+   * random order, in tables with about the given number of slots: a
+   * HashTableMap at load 0.45, just below its limit, the same after as
+   * many removals and insertions of fresh keys as it has entries, which
+   * leave deactivated buckets behind, a RobinHoodHashTableMap at 0.9,
+   * and CuckooHashMaps at 0.5 and 0.9; prints latency percentiles. */
+  public static void cuckoo(int slots) {
+    int cap = Integer.highestOneBit(Math.max(slots, 64));
+    int n = (int) (0.9 * cap);
+    Integer[] keys = randomKeys(3 * n, 42);	// present, fresh, absent
+    Integer[] probes = new Integer[n];
+    Random r = new Random(7);
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int kind = 0; kind < 5; kind++) {
+	Map<Integer,Integer> m;
+	String label;
+	int size, first = 0;	// keys[first..first+size-1] are in the table
+	if (kind <= 1) {
+	  size = (int) (0.45 * cap);
+	  m = new HashTableMap<Integer,Integer>(cap);
+	  label = (kind == 0) ? "HashTableMap 0.45            "
+			      : "HashTableMap 0.45 after churn";
+	}
+	else if (kind == 2) {
+	  size = n;
+	  m = new RobinHoodHashTableMap<Integer,Integer>(cap, 0.95);
+	  label = "RobinHoodHashTableMap 0.9    ";
+	}
+	else {
+	  size = (kind == 3) ? cap / 2 : n;
+	  m = new CuckooHashMap<Integer,Integer>(size, 0.95);
+	  label = "CuckooHashMap " + ((kind == 3) ? "0.5 " : "0.9 ")
+	    + "           ";
+	}
+	for (int i = 0; i < size; i++) m.put(keys[i], keys[i]);
+	if (kind == 1) {	// replace every key by a fresh one
+	  for (int i = 0; i < size; i++) {
+	    m.remove(keys[i]);
+	    m.put(keys[n + i], keys[i]);
+	  }
+	  first = n;
+	}
+	for (int i = 0; i < probes.length; i++)
+	  probes[i] = (i % 2 == 0) ? keys[first + r.nextInt(size)]
+				   : keys[2*n + r.nextInt(n)];
+	long[] lat = new long[probes.length];
+	long found = 0;
+	for (int i = 0; i < probes.length; i++) {
+	  long t = System.nanoTime();
+	  if (m.get(probes[i]) != null) found++;
+	  lat[i] = System.nanoTime() - t;
+	}
+	Sort.radixSort(lat);
+	int p = lat.length;
+	String load = (m instanceof CuckooHashMap)
+	  ? String.format("%.3f", ((CuckooHashMap<Integer,Integer>) m).loadFactor())
+	  : String.format("%.3f", size / (double) cap);
+	out("  " + label + "  load " + load + ";  get p50 " + lat[p/2]
+	    + " ns, p99 " + lat[(int) (p * 0.99)] + " ns, p99.9 "
+	    + lat[(int) (p * 0.999)] + " ns, max " + lat[p-1] / 1000
+	    + " us  (" + found + ")");
+      }
+    }
+  }
+  /** Puts n distinct strings of the same hash code, made of "Aa" and
+   * "BB", in a HashTableMap and in a CuckooHashMap, which cannot place
+   * more than a few of them in their buckets, and checks that all are
+   * found. */
+  public static void collide(int n) {
+    String[] keys = new String[n];
+    for (int i = 0; i < n; i++) {
+      StringBuilder s = new StringBuilder();
+      for (int b = 0; b < 1 || (n - 1) >> b != 0; b++)
+	s.append(((i >> b) & 1) == 0 ? "Aa" : "BB");
+      keys[i] = s.toString();
+    }
+    for (int kind = 0; kind < 2; kind++) {
+      Map<String,Integer> m = (kind == 0)
+	? new HashTableMap<String,Integer>()
+	: new CuckooHashMap<String,Integer>();
+      long t = System.nanoTime();
+      for (int i = 0; i < n; i++) m.put(keys[i], i);
+      long put = ms(t);
+      t = System.nanoTime();
+      for (int i = 0; i < n; i++)
+	if (m.get(keys[i]) != i)
+	  throw new IllegalStateException("Lost key " + keys[i]);
+      long get = ms(t);
+      String extra = (kind == 0) ? ""
+	: "  capacity " + ((CuckooHashMap<String,Integer>) m).capacity()
+	+ ", overflow " + ((CuckooHashMap<String,Integer>) m).overflowSize();
+      out(((kind == 0) ? "HashTableMap " : "CuckooHashMap") + "  put " + put
+	  + " ms, get " + get + " ms" + extra);
+    }
+  }
+  /** Returns n distinct random Integers made from the given seed. */
+  protected static Integer[] randomKeys(int n, long seed) {
+    Random r = new Random(seed);
+    HashTableMap<Integer,Integer> seen = new HashTableMap<Integer,Integer>();
+    Integer[] keys = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      Integer k;
+      do k = r.nextInt(); while (seen.put(k, k) != null);
+      keys[i] = k;
+    }
+    return keys;
+  }
+  /** Returns the first buckets of a histogram as text. */
+  private static String histogram(int[] h) {
+    String s = "[";
+    for (int d = 0; d < Math.min(h.length, 8); d++)
+      s += ((d > 0) ? " " : "") + h[d];
+    return s + ((h.length > 8) ? " ...]" : "]");
+  }
+  /** Returns the milliseconds elapsed since the given nanoTime. */
+  protected static long ms(long start) {
+    return (System.nanoTime() - start) / 1000000;
+  }
+  protected static int intArg(String[] argv, int i, int def) {
+    return (argv.length > i) ? Integer.parseInt(argv[i]) : def;
+  }
+  private static void out(String s) {
+    System.out.println(s);
+  }
+}
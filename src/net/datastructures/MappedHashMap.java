@@ -0,0 +1,481 @@
+package net.datastructures;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash table kept in two memory-mapped files rather than in the heap,
+ * so that it survives the process: opening the files of an existing
+ * table maps them and is done, whatever the number of entries.  Keys
+ * and values are stored as the bytes of a {@link RecordCodec} each, and
+ * two keys are the same key when their bytes are equal, so the codec of
+ * the keys must give equal keys equal bytes.
+ *
+ * <p>The data file <i>base</i><tt>.dat</tt> is a log of records, each
+ * the lengths of a key and of a value, as two 4-byte ints, followed by
+ * their bytes.  The index file <i>base</i><tt>.idx</tt> is a header
+ * followed by a bucket array with linear probing over a power-of-two
+ * capacity; a bucket holds the offset of a record, plus one, or 0 if it
+ * is empty, and the hash code of the bytes of its key, so that the
+ * index is searched and rebuilt without reading the data file.  The
+ * load factor is kept at most 0.75; beyond that, a doubled index is
+ * built in a new file, which then replaces the old one.  Removal shifts
+ * the following buckets of the cluster back.  That replacement moves
+ * the new file over the old one while the old one is still mapped,
+ * which POSIX systems allow but Windows does not, so there the index
+ * cannot grow and the expected number of entries given when the map is
+ * created must be enough.
+ *
+ * <p>A new value of the same length as the old one is written over it;
+ * otherwise a new record is appended and the old one becomes garbage.
+ * The data file is mapped in chunks of up to 1 GB, and its last chunk
+ * is remapped twice as large when an append needs more room.  Changes
+ * reach the disk when the operating system writes the mapped pages
+ * back, or for certain at {@link #force()} and {@link #close()}.
+ *
+ * <p>The iterables of keys, values and entries decode the records as
+ * they are iterated, and their iterators fail fast if an entry is added
+ * or removed meanwhile.  Keys and values may not be null.
+ *
+ * @see RecordCodec
+ * @see HashTableMap
+ */
+public class MappedHashMap<K,V> implements Map<K,V>, Closeable {
+  /** First int of an index file. */
+  public static final int MAGIC = 0x4d484d31;
+  /** Bytes of the header of the index file: the magic number, the
+   * capacity, the number of entries and the end of the data. */
+  protected static final int HEADER = 32;
+  /** Bytes of a bucket: the offset of the record plus one and the hash
+   * code of its key. */
+  protected static final int SLOT = 12;
+  /** Largest capacity, for which the index file is still below 2 GB. */
+  protected static final int MAX_CAPACITY = 1 << 27;
+  protected static final int CHUNK_BITS = 30;	// 1 GB data chunks
+  protected static final long CHUNK = 1L << CHUNK_BITS;
+  /** Bytes of the data file first mapped. */
+  protected static final int MIN_DATA = 1 << 16;
+  protected final File indexFile, dataFile;
+  protected final RecordCodec<K> keyCodec;
+  protected final RecordCodec<V> valueCodec;
+  protected FileChannel indexChannel, dataChannel;
+  protected MappedByteBuffer index;	// null once closed
+  protected MappedByteBuffer[] chunks;	// mapped chunks of the data file
+  protected int capacity, mask;	// buckets of the index, and capacity - 1
+  protected int n;	// number of entries
+  protected long dataEnd;	// end of the last record
+  protected int modCount = 0;	// number of additions and removals
+
+  /** Opens the table kept in the files of the given base name, or
+   * creates an empty one. */
+  public MappedHashMap(File base, RecordCodec<K> keyCodec,
+		       RecordCodec<V> valueCodec) throws IOException {
+    this(base, keyCodec, valueCodec, 1024);
+  }
+  /** Opens the table kept in the files of the given base name, or
+   * creates one that can hold the given number of entries before its
+   * index grows.
+   * @throws IOException if the files exist but do not hold a table */
+  public MappedHashMap(File base, RecordCodec<K> keyCodec,
+		       RecordCodec<V> valueCodec, int expected)
+    throws IOException {
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    indexFile = new File(base.getPath() + ".idx");
+    dataFile = new File(base.getPath() + ".dat");
+    boolean exists = indexFile.length() > 0;
+    indexChannel = open(indexFile, false);
+    chunks = new MappedByteBuffer[0];
+    boolean opened = false;
+    try {
+      if (exists) {
+	index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+				 indexChannel.size());
+	if (index.capacity() < HEADER || index.getInt(0) != MAGIC)
+	  throw new IOException("Not a mapped hash map: " + indexFile);
+	capacity = index.getInt(4);
+	n = index.getInt(8);
+	dataEnd = index.getLong(16);
+	if (index.capacity() < HEADER + (long) capacity * SLOT
+	    || dataFile.length() < dataEnd)
+	  throw new IOException("Truncated mapped hash map: " + base);
+      }
+      else {
+	capacity = Math.min(FlatHashMap.tableSize(expected), MAX_CAPACITY);
+	index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+				 HEADER + (long) capacity * SLOT);
+	index.putInt(0, MAGIC);
+	writeHeader();
+      }
+      mask = capacity - 1;
+      dataChannel = open(dataFile, false);	// once the index is valid
+      mapData(Math.max(dataEnd, MIN_DATA));
+      opened = true;
+    } finally {
+      if (!opened) {	// close what was opened, keeping the first error
+	index = null;
+	chunks = null;
+	try { indexChannel.close(); } catch (IOException e) { }
+	if (dataChannel != null)
+	  try { dataChannel.close(); } catch (IOException e) { }
+      }
+    }
+  }
+
+  /** Returns the number of entries in the table. */
+  public int size() { return n; }
+  /** Returns whether the table is empty. */
+  public boolean isEmpty() { return n == 0; }
+  /** Returns the number of buckets of the index. */
+  public int capacity() { return capacity; }
+  /** Returns the bytes of the data file in use, including the records
+   * of removed or replaced entries. */
+  public long dataSize() { return dataEnd; }
+
+  /** Returns the value associated with a key, or null if none. */
+  public V get(K key) throws InvalidKeyException {
+    checkKey(key);
+    byte[] k = keyCodec.encode(key);
+    int i = findEntry(k, hash(k));
+    return (i < 0) ? null : readValue(ref(i) - 1);
+  }
+  /** Puts a key-value pair in the map, replacing the previous one if it
+   * exists, and returns the previous value or null. */
+  public V put(K key, V value) throws InvalidKeyException {
+    checkKey(key);
+    if (value == null)
+      throw new IllegalArgumentException("Null value");
+    byte[] k = keyCodec.encode(key);
+    byte[] v = valueCodec.encode(value);
+    int h = hash(k);
+    int i = findEntry(k, h);
+    if (i >= 0) {
+      long off = ref(i) - 1;
+      V old = readValue(off);
+      ByteBuffer c = chunk(off);
+      int p = (int) (off & (CHUNK - 1));
+      if (c.getInt(p + 4) == v.length)	// overwrite the old value
+	put(c, p + 8 + c.getInt(p), v);
+      else
+	setSlot(i, append(k, v) + 1, h);
+      writeHeader();
+      return old;
+    }
+    if (n >= capacity / 4 * 3) {
+      grow();
+      i = findEntry(k, h);
+    }
+    setSlot(-i - 1, append(k, v) + 1, h);
+    n++;
+    modCount++;
+    writeHeader();
+    return null;
+  }
+  /** Removes the key-value pair with a specified key, shifting back the
+   * buckets that follow it in its cluster, and returns its value or
+   * null. */
+  public V remove(K key) throws InvalidKeyException {
+    checkKey(key);
+    byte[] k = keyCodec.encode(key);
+    int i = findEntry(k, hash(k));
+    if (i < 0) return null;
+    V old = readValue(ref(i) - 1);
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      long r = ref(j);
+      if (r == 0) break;
+      int home = hashAt(j) & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {	// may fill the hole
+	setSlot(i, r, hashAt(j));
+	i = j;
+      }
+    }
+    setSlot(i, 0, 0);
+    n--;
+    modCount++;
+    writeHeader();
+    return old;
+  }
+
+  /** Writes the changes of both files to the disk. */
+  public void force() {
+    checkOpen();
+    for (MappedByteBuffer c : chunks)
+      c.force();
+    index.force();	// after the data it refers to
+  }
+  /** Forces the changes to the disk and closes the files; the map may
+   * not be used afterwards. */
+  public void close() throws IOException {
+    if (index == null) return;
+    try {
+      force();
+    } finally {
+      index = null;
+      chunks = null;
+      try {
+	indexChannel.close();
+      } finally {
+	dataChannel.close();
+      }
+    }
+  }
+
+  /** Returns an iterable object containing all of the keys. */
+  public Iterable<K> keys() {
+    return new Iterable<K>() {
+      public Iterator<K> iterator() {
+	return new SlotIterator<K>() {
+	  K at(long off) { return readKey(off); }
+	};
+      }
+    };
+  }
+  /** Returns an iterable object containing all of the values. */
+  public Iterable<V> values() {
+    return new Iterable<V>() {
+      public Iterator<V> iterator() {
+	return new SlotIterator<V>() {
+	  V at(long off) { return readValue(off); }
+	};
+      }
+    };
+  }
+  /** Returns an iterable object containing all of the entries. */
+  public Iterable<Entry<K,V>> entries() {
+    return new Iterable<Entry<K,V>>() {
+      public Iterator<Entry<K,V>> iterator() {
+	return new SlotIterator<Entry<K,V>>() {
+	  Entry<K,V> at(long off) {
+	    return new HashTableMap.HashEntry<K,V>(readKey(off), readValue(off));
+	  }
+	};
+      }
+    };
+  }
+
+  /** Determines whether a key is valid. */
+  protected void checkKey(K k) {
+    if (k == null) throw new InvalidKeyException("Invalid key: null.");
+    checkOpen();
+  }
+  /** Determines whether the map is still open. */
+  protected void checkOpen() {
+    if (index == null) throw new IllegalStateException("Map is closed");
+  }
+  /** Returns the hash code of the bytes of a key, mixed. */
+  protected static int hash(byte[] k) {
+    return FlatHashMap.mix(Arrays.hashCode(k));
+  }
+  /** Returns the bucket of a key with the given bytes and hash code, or
+   * -(a + 1) where a is the empty bucket at which it would be inserted. */
+  protected int findEntry(byte[] k, int h) {
+    int i = h & mask;
+    while (true) {
+      long r = ref(i);
+      if (r == 0) return -(i + 1);
+      if (hashAt(i) == h && keyEquals(r - 1, k)) return i;
+      i = (i + 1) & mask;
+    }
+  }
+  /** Returns whether the key of the record at off has the given bytes. */
+  protected boolean keyEquals(long off, byte[] k) {
+    ByteBuffer c = chunk(off);
+    int p = (int) (off & (CHUNK - 1));
+    if (c.getInt(p) != k.length) return false;
+    p += 8;
+    for (int j = 0; j < k.length; j++)
+      if (c.get(p + j) != k[j]) return false;
+    return true;
+  }
+  /** Returns the record offset plus one held by bucket i, or 0. */
+  protected long ref(int i) { return index.getLong(HEADER + i * SLOT); }
+  /** Returns the hash code held by bucket i. */
+  protected int hashAt(int i) { return index.getInt(HEADER + i * SLOT + 8); }
+  /** Sets the record offset plus one and the hash code of bucket i. */
+  protected void setSlot(int i, long ref, int h) {
+    index.putLong(HEADER + i * SLOT, ref);
+    index.putInt(HEADER + i * SLOT + 8, h);
+  }
+  /** Stores the capacity, size and end of the data in the header. */
+  protected void writeHeader() {
+    index.putInt(4, capacity);
+    index.putInt(8, n);
+    index.putLong(16, dataEnd);
+  }
+  /** Returns the key of the record at off. */
+  protected K readKey(long off) {
+    ByteBuffer c = chunk(off);
+    int p = (int) (off & (CHUNK - 1));
+    return keyCodec.decode(get(c, p + 8, c.getInt(p)), 0, c.getInt(p));
+  }
+  /** Returns the value of the record at off. */
+  protected V readValue(long off) {
+    ByteBuffer c = chunk(off);
+    int p = (int) (off & (CHUNK - 1));
+    int len = c.getInt(p + 4);
+    return valueCodec.decode(get(c, p + 8 + c.getInt(p), len), 0, len);
+  }
+  /** Returns the mapped chunk that holds the data at off. */
+  protected ByteBuffer chunk(long off) {
+    return chunks[(int) (off >>> CHUNK_BITS)];
+  }
+  /** Appends a record to the data file and returns its offset; a record
+   * that would cross the end of a chunk starts the next one instead.
+   * @throws IllegalArgumentException if the record is longer than a
+   * chunk */
+  protected long append(byte[] k, byte[] v) {
+    long len = 8L + k.length + v.length;
+    if (len > CHUNK)
+      throw new IllegalArgumentException("Record too long: " + len);
+    long off = dataEnd;
+    if ((off & (CHUNK - 1)) + len > CHUNK)
+      off = (off | (CHUNK - 1)) + 1;	// the start of the next chunk
+    try {
+      mapData(off + len);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    ByteBuffer c = chunk(off);
+    int p = (int) (off & (CHUNK - 1));
+    c.putInt(p, k.length);
+    c.putInt(p + 4, v.length);
+    put(c, p + 8, k);
+    put(c, p + 8 + k.length, v);
+    dataEnd = off + len;
+    return off;
+  }
+  /** Maps the data file at least up to the given end, remapping the
+   * last chunk twice as large, up to 1 GB, or mapping new chunks. */
+  protected void mapData(long end) throws IOException {
+    while (true) {
+      int last = chunks.length - 1;
+      long mapped = (last < 0) ? 0 : last * CHUNK + chunks[last].capacity();
+      if (mapped >= end) return;
+      long size;
+      if (last >= 0 && chunks[last].capacity() < CHUNK)
+	size = Math.min(CHUNK, Math.max(2L * chunks[last].capacity(),
+					end - last * CHUNK));
+      else {
+	last++;
+	chunks = Arrays.copyOf(chunks, last + 1);
+	size = Math.min(CHUNK, Math.max(MIN_DATA, end - last * CHUNK));
+      }
+      chunks[last] = dataChannel.map(FileChannel.MapMode.READ_WRITE,
+				     last * CHUNK, size);
+    }
+  }
+  /** Builds an index with twice the buckets in a new file, from the
+   * hash codes of the current one, and moves it over the index file.
+   * If that fails, the new file is deleted and the map keeps the old
+   * index. */
+  protected void grow() {
+    if (capacity >= MAX_CAPACITY)
+      throw new IllegalStateException("Index is full");
+    int cap = 2 * capacity;
+    File tmp = new File(indexFile.getPath() + ".tmp");
+    FileChannel ch = null;
+    MappedByteBuffer b;
+    boolean moved = false;
+    try {
+      ch = open(tmp, true);
+      b = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) cap * SLOT);
+      for (int j = 0; j < capacity; j++) {
+	long r = ref(j);
+	if (r == 0) continue;
+	int h = hashAt(j);
+	int i = h & (cap - 1);
+	while (b.getLong(HEADER + i * SLOT) != 0)	// keys are distinct
+	  i = (i + 1) & (cap - 1);
+	b.putLong(HEADER + i * SLOT, r);
+	b.putInt(HEADER + i * SLOT + 8, h);
+      }
+      b.putInt(0, MAGIC);
+      b.putInt(4, cap);
+      b.putInt(8, n);
+      b.putLong(16, dataEnd);
+      b.force();	// complete before it replaces the old index
+      Files.move(tmp.toPath(), indexFile.toPath(),
+		 StandardCopyOption.REPLACE_EXISTING,
+		 StandardCopyOption.ATOMIC_MOVE);
+      moved = true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      if (!moved) {	// keep the old index, and leave nothing behind
+	if (ch != null)
+	  try { ch.close(); } catch (IOException e) { }
+	tmp.delete();
+      }
+    }
+    FileChannel oldChannel = indexChannel;
+    indexChannel = ch;
+    index = b;
+    capacity = cap;
+    mask = cap - 1;
+    try {
+      oldChannel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+  /** Opens a file for reading and writing, creating it if needed. */
+  protected static FileChannel open(File f, boolean truncate)
+    throws IOException {
+    return truncate
+      ? FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+			 StandardOpenOption.READ, StandardOpenOption.WRITE,
+			 StandardOpenOption.TRUNCATE_EXISTING)
+      : FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+			 StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+  /** Returns a copy of len bytes of a buffer from index p. */
+  protected static byte[] get(ByteBuffer c, int p, int len) {
+    byte[] b = new byte[len];
+    ByteBuffer d = c.duplicate();
+    d.position(p);
+    d.get(b);
+    return b;
+  }
+  /** Copies bytes into a buffer from index p. */
+  protected static void put(ByteBuffer c, int p, byte[] b) {
+    ByteBuffer d = c.duplicate();
+    d.position(p);
+    d.put(b);
+  }
+
+  /** Fail-fast iterator over the records of the occupied buckets. */
+  protected abstract class SlotIterator<T> implements Iterator<T> {
+    final int expectedModCount = modCount;
+    int next = advance(0);	// next occupied bucket, or capacity
+    /** Returns the element of the iteration for the record at off. */
+    abstract T at(long off);
+    int advance(int i) {
+      checkOpen();
+      while (i < capacity && ref(i) == 0) i++;
+      return i;
+    }
+    public boolean hasNext() { return next < capacity; }
+    public T next() {
+      if (modCount != expectedModCount)
+	throw new ConcurrentModificationException();
+      if (next >= capacity) throw new NoSuchElementException();
+      T t = at(ref(next) - 1);
+      next = advance(next + 1);
+      return t;
+    }
+    public void remove() { throw new UnsupportedOperationException(); }
+  }
+}
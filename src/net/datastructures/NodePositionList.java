@@ -1,4 +1,5 @@
 package net.datastructures;
+import java.util.Comparator;
 import java.util.Iterator;
 /**  
  * Realization of a PositionList using a doubly-linked list of nodes.
@@ -198,6 +199,85 @@ public class NodePositionList<E> implements PositionList<E> {
     pA.setElement(pB.element());
     pB.setElement(temp);
   }
+  /** Sorts the list in nondecreasing order according to comparator c
+    * by relinking its nodes, so every position keeps its element and
+    * stays valid; stable, allocates nothing, O(n log n) time and O(n)
+    * time on a list made of a few ascending or descending runs.  It is
+    * a natural merge sort: the list is cut into ascending runs, with
+    * strictly descending runs reversed, and runs are merged in a
+    * balanced way, using only the next references; the prev references
+    * are fixed at the end. */
+  public void sort(Comparator<E> c) {
+    if (numElts < 2) return;
+    trailer.getPrev().setNext(null);	// the nodes form a null-ended chain
+    DNode<E> tail = sortRuns(header, 0, c);
+    for (int k = 0; tail.getNext() != null; k++)	// double the sorted prefix
+      tail = mergeAfter(header, tail, sortRuns(tail, k, c), c);
+    DNode<E> prev = header;	// restore the prev references
+    for (DNode<E> v = header.getNext(); v != null; v = v.getNext()) {
+      v.setPrev(prev);
+      prev = v;
+    }
+    prev.setNext(trailer);
+    trailer.setPrev(prev);
+  }
+  /** Sorts the next 2^k runs of the chain after node before, leaving
+    * them linked between before and the rest of the chain, and returns
+    * the last sorted node. */
+  private DNode<E> sortRuns(DNode<E> before, int k, Comparator<E> c) {
+    if (k == 0)
+      return takeRun(before, c);
+    DNode<E> mid = sortRuns(before, k - 1, c);
+    if (mid.getNext() == null) return mid;	// fewer runs are left
+    return mergeAfter(before, mid, sortRuns(mid, k - 1, c), c);
+  }
+  /** Makes the run starting after node before ascending, by reversing
+    * it if it is strictly descending, and returns its last node. */
+  private DNode<E> takeRun(DNode<E> before, Comparator<E> c) {
+    DNode<E> v = before.getNext(), next = v.getNext();
+    if (next == null || c.compare(next.element(), v.element()) >= 0) {
+      while ((next = v.getNext()) != null
+	     && c.compare(next.element(), v.element()) >= 0)
+	v = next;
+      return v;
+    }
+    DNode<E> runHead = v, reversed = null;	// reversing a strictly
+    do {	// descending run keeps the sort stable
+      next = v.getNext();
+      v.setNext(reversed);
+      reversed = v;
+      v = next;
+    } while (v != null && c.compare(v.element(), reversed.element()) < 0);
+    before.setNext(reversed);
+    runHead.setNext(v);
+    return runHead;
+  }
+  /** Merges the adjacent sorted segments before.next..aEnd and
+    * aEnd.next..bEnd, leaving the result linked between before and the
+    * rest of the chain, and returns its last node.  Ties are taken from
+    * the first segment. */
+  private DNode<E> mergeAfter(DNode<E> before, DNode<E> aEnd, DNode<E> bEnd,
+			      Comparator<E> c) {
+    DNode<E> a = before.getNext(), b = aEnd.getNext(), rest = bEnd.getNext();
+    aEnd.setNext(null);
+    bEnd.setNext(null);
+    DNode<E> tail = before;
+    while (a != null && b != null)
+      if (c.compare(b.element(), a.element()) < 0) {
+	tail.setNext(b);
+	tail = b;
+	b = b.getNext();
+      }
+      else {
+	tail.setNext(a);
+	tail = a;
+	a = a.getNext();
+      }
+    tail.setNext((a != null) ? a : b);
+    tail = (a != null) ? aEnd : bEnd;
+    tail.setNext(rest);
+    return tail;
+  }
   /** Returns a textual representation of a given node list using for-each */
   public static <E> String forEachToString(PositionList<E> L) {
     String s = "[";
@@ -0,0 +1,202 @@
+package net.datastructures;
+import java.util.Comparator;
+
+/**
+  * Realization of an adaptable priority queue by means of a pairing
+  * heap: a heap-ordered multiway tree in which each node points to its
+  * first child and to its next sibling.  Insertion and decreasing a key
+  * take O(1) time, by linking a tree under the root or the root under
+  * it; removing the minimum merges the children of the root in two
+  * passes and takes O(log n) amortized time.  This suits Dijkstra's
+  * algorithm on dense graphs, where keys are decreased much more often
+  * than the minimum is removed.
+  *
+  * <p>Increasing a key is done by removing the entry and inserting it
+  * again, so the entry object stays the same.
+  *
+  * @see HeapAdaptablePriorityQueue
+  */
+public class PairingHeapAdaptablePriorityQueue<K,V>
+  implements AdaptablePriorityQueue<K,V> {
+  protected PairNode<K,V> root;	// root of the tree, holding a minimum key
+  protected int size = 0;	// number of entries
+  protected Comparator<K> comp;	// comparator for the keys
+  /** Creates an empty heap with the default comparator. */
+  public PairingHeapAdaptablePriorityQueue() {
+    this(new DefaultComparator<K>());
+  }
+  /** Creates an empty heap with the given comparator. */
+  public PairingHeapAdaptablePriorityQueue(Comparator<K> c) {
+    comp = c;
+  }
+  /** Returns the size of the heap */
+  public int size() { return size; }
+  /** Returns whether the heap is empty */
+  public boolean isEmpty() { return size == 0; }
+  /** Returns but does not remove an entry with minimum key */
+  public Entry<K,V> min() throws EmptyPriorityQueueException {
+    if (isEmpty())
+      throw new EmptyPriorityQueueException("Priority queue is empty");
+    return root;
+  }
+  /** Inserts a key-value pair and returns the entry created */
+  public Entry<K,V> insert(K k, V x) throws InvalidKeyException {
+    checkKey(k);
+    PairNode<K,V> node = new PairNode<K,V>(k, x, this);
+    root = link(root, node);
+    size++;
+    return node;
+  }
+  /** Removes and returns an entry with minimum key */
+  public Entry<K,V> removeMin() throws EmptyPriorityQueueException {
+    PairNode<K,V> min = (PairNode<K,V>) min();
+    root = mergePairs(min.child);
+    min.child = null;
+    min.inQueue = false;
+    size--;
+    return min;
+  }
+  /** Removes and returns the given entry from the heap */
+  public Entry<K,V> remove(Entry<K,V> e) throws InvalidEntryException {
+    PairNode<K,V> node = checkEntry(e);
+    if (node == root)
+      return removeMin();
+    cut(node);
+    root = link(root, mergePairs(node.child));
+    node.child = null;
+    node.inQueue = false;
+    size--;
+    return node;
+  }
+  /** Replaces the key of the given entry and returns the old key */
+  public K replaceKey(Entry<K,V> e, K k)
+    throws InvalidEntryException, InvalidKeyException {
+    checkKey(k);
+    PairNode<K,V> node = checkEntry(e);
+    K oldKey = node.key;
+    if (comp.compare(k, oldKey) <= 0) {	// decrease: cut and relink
+      node.key = k;
+      if (node != root) {
+	cut(node);
+	root = link(root, node);
+      }
+    }
+    else {	// increase: remove and insert again
+      remove(node);
+      node.key = k;
+      node.inQueue = true;
+      root = link(root, node);
+      size++;
+    }
+    return oldKey;
+  }
+  /** Replaces the value of the given entry and returns the old value */
+  public V replaceValue(Entry<K,V> e, V x) throws InvalidEntryException {
+    PairNode<K,V> node = checkEntry(e);
+    V oldValue = node.value;
+    node.value = x;
+    return oldValue;
+  }
+
+  /** Determines whether a given key is valid */
+  protected void checkKey(K key) throws InvalidKeyException {
+    try {
+      comp.compare(key,key);
+    }
+    catch(Exception e) {
+      throw new InvalidKeyException("Invalid key");
+    }
+  }
+  /** Checks whether a given entry is in this heap */
+  protected PairNode<K,V> checkEntry(Entry<K,V> ent)
+    throws InvalidEntryException {
+    if (ent == null || !(ent instanceof PairNode))
+      throw new InvalidEntryException("Invalid entry");
+    PairNode<K,V> node = (PairNode<K,V>) ent;
+    if (node.owner != this || !node.inQueue)
+      throw new InvalidEntryException("Entry is not in this queue");
+    return node;
+  }
+  /** Links two detached trees, making the root with the larger key the
+   * first child of the other, and returns the new root. */
+  protected PairNode<K,V> link(PairNode<K,V> a, PairNode<K,V> b) {
+    if (a == null) return b;
+    if (b == null) return a;
+    if (comp.compare(b.key, a.key) < 0) {
+      PairNode<K,V> t = a; a = b; b = t;
+    }
+    b.prev = a;
+    b.next = a.child;
+    if (a.child != null) a.child.prev = b;
+    a.child = b;
+    return a;
+  }
+  /** Detaches the subtree of a non-root node from its parent. */
+  protected void cut(PairNode<K,V> node) {
+    if (node.prev.child == node)	// node is the first child
+      node.prev.child = node.next;
+    else
+      node.prev.next = node.next;
+    if (node.next != null) node.next.prev = node.prev;
+    node.prev = node.next = null;
+  }
+  /** Merges a list of sibling trees into one and returns its root: the
+   * trees are linked in pairs from left to right, then the pairs are
+   * linked from right to left. */
+  protected PairNode<K,V> mergePairs(PairNode<K,V> first) {
+    PairNode<K,V> pairs = null;	// linked pairs, rightmost first
+    PairNode<K,V> a = first;
+    while (a != null) {	// first pass
+      PairNode<K,V> b = a.next;
+      PairNode<K,V> rest = (b == null) ? null : b.next;
+      a.prev = a.next = null;
+      if (b != null) {
+	b.prev = b.next = null;
+	a = link(a, b);
+      }
+      a.next = pairs;	// push the pair, using next as the stack link
+      pairs = a;
+      a = rest;
+    }
+    PairNode<K,V> result = null;
+    while (pairs != null) {	// second pass
+      PairNode<K,V> next = pairs.next;
+      pairs.next = null;
+      result = link(pairs, result);
+      pairs = next;
+    }
+    return result;
+  }
+  /** Text visualization for debugging purposes */
+  public String toString() {
+    return "[" + toString(root) + "]";
+  }
+  private String toString(PairNode<K,V> node) {
+    String s = "";
+    for (PairNode<K,V> n = node; n != null; n = n.next) {
+      s += ((n != node) ? ", " : "") + n;
+      if (n.child != null) s += " [" + toString(n.child) + "]";
+    }
+    return s;
+  }
+
+  /** Inner class for a node of the pairing heap, which is also the
+   * entry returned to the user. */
+  protected static class PairNode<K,V> implements Entry<K,V> {
+    protected K key;
+    protected V value;
+    protected PairNode<K,V> child;	// first child
+    protected PairNode<K,V> next;	// next sibling
+    protected PairNode<K,V> prev;	// previous sibling, or parent
+    protected boolean inQueue = true;
+    protected final PairingHeapAdaptablePriorityQueue<K,V> owner;
+    PairNode(K k, V x, PairingHeapAdaptablePriorityQueue<K,V> q) {
+      key = k;
+      value = x;
+      owner = q;
+    }
+    public K getKey() { return key; }
+    public V getValue() { return value; }
+    public String toString() { return "(" + key  + "," + value + ")"; }
+  }
+}
@@ -0,0 +1,153 @@
+package net.datastructures;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Benchmarks for the priority queues.  The first argument names the
+ * benchmark to run and the remaining arguments are its parameters:
+ *
+ * <pre>
+ *   dary [n] [ops]   heap sort of n keys and a hold workload of ops
+ *                    removeMin/insert pairs on a queue of n keys
+ *   heapify [n]      building a heap of n keys by insert and by insertAll
+ * </pre>
+ *
+ * Allocation is reported when the JVM can measure the bytes allocated
+ * by a thread, as HotSpot does.
+ */
+public class PriorityQueueBenchmark {
+  public static void main(String[] argv) {
+    String which = (argv.length > 0) ? argv[0] : "dary";
+    if (which.equals("dary"))
+      dary(intArg(argv, 1, 1000000), intArg(argv, 2, 5000000));
+    else if (which.equals("heapify"))
+      heapify(intArg(argv, 1, 2000000));
+    else
+      out("Unknown benchmark: " + which);
+  }
+
+  /** Compares HeapPriorityQueue with the d-ary heaps of several
+   * arities on removeMin-heavy workloads. */
+  public static void dary(int n, int ops) {
+    Random r = new Random(42);
+    Integer[] keys = new Integer[n + ops];	// boxed once, outside timing
+    for (int i = 0; i < keys.length; i++)
+      keys[i] = r.nextInt(Integer.MAX_VALUE / 2);
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      run("HeapPriorityQueue           ",
+	  new HeapPriorityQueue<Integer,Integer>(), keys, n, ops, false);
+      for (int d = 2; d <= 8; d *= 2)
+	run("DaryHeapPriorityQueue d=" + d + "    ",
+	    new DaryHeapPriorityQueue<Integer,Integer>(d,
+	      new DefaultComparator<Integer>()), keys, n, ops, true);
+      run("DaryHeapPriorityQueue d=4 (Entry API)",
+	  new DaryHeapPriorityQueue<Integer,Integer>(), keys, n, ops, false);
+      run("HeapAdaptablePriorityQueue  ",
+	  new HeapAdaptablePriorityQueue<Integer,Integer>(), keys, n, ops,
+	  false);
+      run("DaryHeapAdaptable d=4      ",
+	  new DaryHeapAdaptablePriorityQueue<Integer,Integer>(), keys, n, ops,
+	  true);
+    }
+  }
+  /** Compares one-at-a-time insertion with bottom-up construction for
+   * HeapPriorityQueue and HeapAdaptablePriorityQueue, on random keys
+   * (where an insertion bubbles up O(1) levels on average) and on
+   * decreasing keys (where every insertion bubbles up to the root). */
+  public static void heapify(int n) {
+    Random r = new Random(42);
+    Integer[] random = new Integer[n];
+    Integer[] decreasing = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      random[i] = r.nextInt();
+      decreasing[i] = n - i;
+    }
+    for (int round = 0; round < 6; round++) {
+      Integer[] keys = (round % 2 == 0) ? random : decreasing;
+      out("round " + round/2 + ((round % 2 == 0) ? ", random keys"
+				: ", decreasing keys"));
+      for (int adaptable = 0; adaptable < 2; adaptable++) {
+	String name = (adaptable == 1) ? "HeapAdaptablePriorityQueue"
+				       : "HeapPriorityQueue         ";
+	HeapPriorityQueue<Integer,Integer> q = (adaptable == 1)
+	  ? new HeapAdaptablePriorityQueue<Integer,Integer>()
+	  : new HeapPriorityQueue<Integer,Integer>();
+	long t = System.nanoTime();
+	for (int i = 0; i < n; i++) q.insert(keys[i], keys[i]);
+	long tInsert = ms(t);
+	q = null;
+	t = System.nanoTime();
+	q = (adaptable == 1)
+	  ? new HeapAdaptablePriorityQueue<Integer,Integer>(keys, keys)
+	  : new HeapPriorityQueue<Integer,Integer>(keys, keys);
+	out("  " + name + "  insert " + tInsert + " ms, insertAll "
+	    + ms(t) + " ms  (min " + q.min().getKey() + ")");
+      }
+    }
+  }
+  /** Runs both workloads on one queue.  If <tt>fast</tt> is true the
+   * allocation-free methods of the d-ary heaps are used. */
+  protected static void run(String label, PriorityQueue<Integer,Integer> q,
+      Integer[] keys, int n, int ops, boolean fast) {
+    long bytes = allocatedBytes();
+    long t = System.nanoTime();
+    for (int i = 0; i < n; i++) insert(q, keys[i], fast);
+    long check = 0;
+    while (!q.isEmpty()) check += removeMin(q, fast);
+    long sortMs = ms(t);
+    long sortBytes = allocatedBytes() - bytes;
+    for (int i = 0; i < n; i++) insert(q, keys[i], fast);
+    bytes = allocatedBytes();
+    t = System.nanoTime();
+    for (int i = 0; i < ops; i++) {	// hold model: keys only grow
+      int min = removeMin(q, fast);
+      insert(q, min + keys[n + i] % 1024, fast);
+    }
+    long holdMs = ms(t);
+    long holdBytes = allocatedBytes() - bytes;
+    out("  " + label + "  sort " + sortMs + " ms, "
+	+ perOp(sortBytes, 2L*n) + " B/op;  hold " + holdMs + " ms, "
+	+ perOp(holdBytes, 2L*ops) + " B/op  (" + (check & 0xff) + ")");
+  }
+  private static void insert(PriorityQueue<Integer,Integer> q, Integer k,
+			     boolean fast) {
+    if (!fast) q.insert(k, k);
+    else if (q instanceof DaryHeapPriorityQueue)
+      ((DaryHeapPriorityQueue<Integer,Integer>) q).add(k, k);
+    else
+      ((DaryHeapAdaptablePriorityQueue<Integer,Integer>) q).add(k, k);
+  }
+  private static int removeMin(PriorityQueue<Integer,Integer> q,
+			       boolean fast) {
+    if (!fast) return q.removeMin().getValue();
+    else if (q instanceof DaryHeapPriorityQueue)
+      return ((DaryHeapPriorityQueue<Integer,Integer>) q).removeMinValue();
+    else
+      return ((DaryHeapAdaptablePriorityQueue<Integer,Integer>) q)
+	.removeMinValue();
+  }
+
+  /** Returns the bytes allocated so far by the current thread, or 0 if
+   * the JVM cannot tell. */
+  protected static long allocatedBytes() {
+    java.lang.management.ThreadMXBean b = ManagementFactory.getThreadMXBean();
+    if (b instanceof com.sun.management.ThreadMXBean)
+      return ((com.sun.management.ThreadMXBean) b)
+	.getThreadAllocatedBytes(Thread.currentThread().getId());
+    return 0;
+  }
+  private static String perOp(long bytes, long ops) {
+    return String.valueOf(bytes / ops);
+  }
+  /** Returns the milliseconds elapsed since the given nanoTime. */
+  protected static long ms(long start) {
+    return (System.nanoTime() - start) / 1000000;
+  }
+  protected static int intArg(String[] argv, int i, int def) {
+    return (argv.length > i) ? Integer.parseInt(argv[i]) : def;
+  }
+  private static void out(String s) {
+    System.out.println(s);
+  }
+}
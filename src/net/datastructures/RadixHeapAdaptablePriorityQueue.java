@@ -0,0 +1,171 @@
+package net.datastructures;
+
+/**
+  * Realization of an adaptable priority queue with non-negative integer
+  * keys by means of a radix heap.  The queue is <i>monotone</i>: a key
+  * may not be smaller than the last minimum key reported by {@link #min()
+  * min} or {@link #removeMin() removeMin}, which is exactly the pattern
+  * of Dijkstra's algorithm with non-negative weights.
+  *
+  * <p>Entries are kept in 33 doubly-linked buckets.  Bucket 0 holds the
+  * entries whose key equals the last minimum, and bucket <i>i</i> &gt; 0
+  * those whose key first differs from it in bit <i>i</i>-1.  Insertion,
+  * removal and key replacement take O(1) time; finding the minimum
+  * empties the first non-empty bucket into lower ones, and since an
+  * entry only ever moves to lower buckets the amortized cost of
+  * <tt>removeMin</tt> is O(log C), where C is the largest key.  Keys
+  * are compared as ints, with no comparator and no boxing inside the
+  * queue.
+  *
+  * @see HeapAdaptablePriorityQueue
+  */
+public class RadixHeapAdaptablePriorityQueue<V>
+  implements AdaptablePriorityQueue<Integer,V> {
+  /** Number of buckets: one per bit of a non-negative int, plus one. */
+  protected static final int NUM_BUCKETS = 33;
+  protected RadixEntry<V>[] buckets;	// first entry of each bucket
+  protected int last = 0;	// last minimum key
+  protected int size = 0;	// number of entries
+  /** Creates an empty queue. */
+  public RadixHeapAdaptablePriorityQueue() {
+    buckets = (RadixEntry<V>[]) new RadixEntry[NUM_BUCKETS];
+  }
+  /** Returns the number of entries in the queue. */
+  public int size() { return size; }
+  /** Returns whether the queue is empty. */
+  public boolean isEmpty() { return size == 0; }
+  /** Returns but does not remove an entry with minimum key. */
+  public Entry<Integer,V> min() throws EmptyPriorityQueueException {
+    if (isEmpty())
+      throw new EmptyPriorityQueueException("Priority queue is empty");
+    if (buckets[0] == null) {
+      int i = 1;
+      while (buckets[i] == null) i++;	// first non-empty bucket
+      int min = Integer.MAX_VALUE;
+      for (RadixEntry<V> e = buckets[i]; e != null; e = e.next)
+	if (e.key < min) min = e.key;
+      last = min;
+      RadixEntry<V> e = buckets[i];
+      buckets[i] = null;
+      while (e != null) {	// redistribute the bucket around the new last
+	RadixEntry<V> next = e.next;
+	link(e);
+	e = next;
+      }
+    }
+    return buckets[0];
+  }
+  /** Inserts a key-value pair and returns the entry created. */
+  public Entry<Integer,V> insert(Integer k, V v) throws InvalidKeyException {
+    checkKey(k);
+    RadixEntry<V> e = new RadixEntry<V>(k, v, this);
+    link(e);
+    size++;
+    return e;
+  }
+  /** Removes and returns an entry with minimum key. */
+  public Entry<Integer,V> removeMin() throws EmptyPriorityQueueException {
+    RadixEntry<V> e = (RadixEntry<V>) min();
+    unlink(e);
+    removed();
+    return e;
+  }
+  /** Removes and returns the given entry from the queue. */
+  public Entry<Integer,V> remove(Entry<Integer,V> entry)
+    throws InvalidEntryException {
+    RadixEntry<V> e = checkEntry(entry);
+    unlink(e);
+    removed();
+    return e;
+  }
+  /** Replaces the key of the given entry and returns the old key. */
+  public Integer replaceKey(Entry<Integer,V> entry, Integer k)
+    throws InvalidEntryException, InvalidKeyException {
+    checkKey(k);
+    RadixEntry<V> e = checkEntry(entry);
+    Integer oldKey = e.key;
+    unlink(e);
+    e.key = k;
+    link(e);
+    return oldKey;
+  }
+  /** Replaces the value of the given entry and returns the old value. */
+  public V replaceValue(Entry<Integer,V> entry, V value)
+    throws InvalidEntryException {
+    RadixEntry<V> e = checkEntry(entry);
+    V oldValue = e.value;
+    e.value = value;
+    return oldValue;
+  }
+
+  /** Determines whether a key is valid: it must be non-negative and not
+   * smaller than the last minimum key. */
+  protected void checkKey(Integer k) throws InvalidKeyException {
+    if (k == null || k < 0)
+      throw new InvalidKeyException("Invalid key: " + k);
+    if (k < last)
+      throw new InvalidKeyException("Key " + k
+				    + " is smaller than the last minimum " + last);
+  }
+  /** Checks whether a given entry is in this queue. */
+  protected RadixEntry<V> checkEntry(Entry<Integer,V> ent)
+    throws InvalidEntryException {
+    if (ent == null || !(ent instanceof RadixEntry))
+      throw new InvalidEntryException("Invalid entry");
+    RadixEntry<V> e = (RadixEntry<V>) ent;
+    if (e.owner != this || e.bucket < 0)
+      throw new InvalidEntryException("Entry is not in this queue");
+    return e;
+  }
+  /** Returns the bucket of a key with respect to the last minimum. */
+  protected int bucketOf(int k) {
+    return (k == last) ? 0 : 32 - Integer.numberOfLeadingZeros(k ^ last);
+  }
+  /** Adds an entry at the front of the bucket of its key. */
+  protected void link(RadixEntry<V> e) {
+    int b = bucketOf(e.key);
+    e.bucket = b;
+    e.prev = null;
+    e.next = buckets[b];
+    if (e.next != null) e.next.prev = e;
+    buckets[b] = e;
+  }
+  /** Takes an entry out of its bucket. */
+  protected void unlink(RadixEntry<V> e) {
+    if (e.prev != null) e.prev.next = e.next;
+    else buckets[e.bucket] = e.next;
+    if (e.next != null) e.next.prev = e.prev;
+    e.prev = e.next = null;
+    e.bucket = -1;	// the entry is no longer in the queue
+  }
+  /** Updates the size after a removal; an empty queue accepts any
+   * non-negative key again. */
+  protected void removed() {
+    if (--size == 0) last = 0;
+  }
+  /** Text visualization for debugging purposes */
+  public String toString() {
+    String s = "[";
+    for (int i = 0; i < NUM_BUCKETS; i++)
+      for (RadixEntry<V> e = buckets[i]; e != null; e = e.next)
+	s += ((s.length() > 1) ? ", " : "") + e;
+    return s + "]";
+  }
+
+  /** Inner class for a radix heap entry, linked into its bucket. */
+  protected static class RadixEntry<V> implements Entry<Integer,V> {
+    protected int key;
+    protected V value;
+    protected int bucket;	// index of the bucket, -1 once removed
+    protected RadixEntry<V> prev, next;
+    protected final RadixHeapAdaptablePriorityQueue<V> owner;
+    RadixEntry(int k, V v, RadixHeapAdaptablePriorityQueue<V> q) {
+      key = k;
+      value = v;
+      owner = q;
+    }
+    public Integer getKey() { return key; }
+    public V getValue() { return value; }
+    public String toString() { return "(" + key  + "," + value + ")"; }
+  }
+}
@@ -0,0 +1,15 @@
+package net.datastructures;
+
+/**
+ * Converts records to and from bytes, for structures that keep their
+ * records in files, such as {@link ExternalSort} and {@link
+ * MappedHashMap}.
+ */
+public interface RecordCodec<E> {
+  /** Returns the bytes of a record. */
+  public byte[] encode(E record);
+  /** Returns the record whose bytes are b[off..off+len-1].  The array
+   * belongs to the caller and may be overwritten after the call, so the
+   * record must not keep a reference to it. */
+  public E decode(byte[] b, int off, int len);
+}
@@ -0,0 +1,172 @@
+package net.datastructures;
+
+/**
+  * A hash table with linear probing and Robin Hood insertion, using the
+  * MAD hash function of {@link HashTableMap}.  The distance of an entry
+  * from its home bucket is its probe length; an insertion that meets an
+  * entry closer to its home than the new one is to its own takes that
+  * bucket and moves the richer entry on, which keeps the probe lengths
+  * short and of low variance, and lets a search stop as soon as it meets
+  * an entry closer to home than the key searched would be.
+  *
+  * <p>Removal shifts the following entries of the cluster back by one
+  * bucket instead of leaving the AVAILABLE marker, so churn never fills
+  * the table with deactivated buckets.  Each entry caches the hash code
+  * of its key and its home bucket.  The table is doubled when its load
+  * factor would exceed a maximum, 0.75 by default.
+  *
+  * @see HashTableMap
+  */
+public class RobinHoodHashTableMap<K,V> extends HashTableMap<K,V> {
+  /** Default maximum load factor. */
+  public static final double DEFAULT_MAX_LOAD = 0.75;
+  protected double maxLoad;	// maximum load factor
+  /** Creates a hash table with capacity 1000 and maximum load 0.75. */
+  public RobinHoodHashTableMap() { this(1000); }
+  /** Creates a hash table with the given capacity and maximum load 0.75. */
+  public RobinHoodHashTableMap(int cap) { this(cap, DEFAULT_MAX_LOAD); }
+  /** Creates a hash table with the given capacity and maximum load.
+   * @throws IllegalArgumentException if the load is not in (0, 1) */
+  public RobinHoodHashTableMap(int cap, double maxLoad) {
+    super(cap);
+    if (!(maxLoad > 0 && maxLoad < 1))
+      throw new IllegalArgumentException("Maximum load must be in (0, 1)");
+    this.maxLoad = maxLoad;
+  }
+  /** Returns the maximum load factor. */
+  public double maxLoad() { return maxLoad; }
+
+  /** Returns the index of the bucket of a key, or -(a + 1) where a is
+   * the bucket at which the key would be inserted. */
+  protected int findEntry(K key) throws InvalidKeyException {
+    checkKey(key);
+    int h = key.hashCode();
+    int i = home(h);
+    for (int dist = 0; ; dist++) {
+      RobinHoodEntry<K,V> e = (RobinHoodEntry<K,V>) bucket[i];
+      if (e == null || probeLength(e, i) < dist)
+	return -(i + 1);	// the key would be here
+      if (e.hash == h && key.equals(e.getKey()))
+	return i;
+      i = (i + 1) % capacity;
+    }
+  }
+  /** Puts a key-value pair in the map, replacing the previous one if it
+   * exists. */
+  public V put(K key, V value) throws InvalidKeyException {
+    int i = findEntry(key);
+    if (i >= 0)
+      return ((HashEntry<K,V>) bucket[i]).setValue(value);
+    if (n + 1 > maxLoad * capacity) {
+      rehash();
+      i = findEntry(key);
+    }
+    int h = key.hashCode();
+    insert(new RobinHoodEntry<K,V>(key, value, h, home(h)), -i - 1);
+    n++;
+    modCount++;
+    return null;
+  }
+  /** Removes the key-value pair with a specified key, shifting back
+   * the entries that follow it in its cluster. */
+  public V remove(K key) throws InvalidKeyException {
+    int i = findEntry(key);
+    if (i < 0) return null;
+    V toReturn = bucket[i].getValue();
+    while (true) {
+      int next = (i + 1) % capacity;
+      RobinHoodEntry<K,V> e = (RobinHoodEntry<K,V>) bucket[next];
+      if (e == null || e.home == next) {	// the cluster part ends
+	bucket[i] = null;
+	break;
+      }
+      bucket[i] = e;	// one bucket closer to its home
+      i = next;
+    }
+    n--;
+    modCount++;
+    return toReturn;
+  }
+  /** Doubles the size of the hash table and reinserts all the entries. */
+  protected void rehash() {
+    modCount++;
+    Entry<K,V>[] old = bucket;
+    capacity = 2*capacity;
+    bucket = (Entry<K,V>[]) new Entry[capacity];
+    java.util.Random rand = new java.util.Random();
+    scale = rand.nextInt(prime-1) + 1;
+    shift = rand.nextInt(prime);
+    for (int i = 0; i < old.length; i++)
+      if (old[i] != null) {
+	RobinHoodEntry<K,V> e = (RobinHoodEntry<K,V>) old[i];
+	e.home = home(e.hash);	// keys are distinct, so no search is needed
+	insert(e, e.home);
+      }
+  }
+
+  /** Returns an array whose element d is the number of entries at probe
+   * length d, that is, d buckets after their home bucket; its length is
+   * one more than the largest probe length. */
+  public int[] probeLengthHistogram() {
+    int max = 0;
+    for (int i = 0; i < capacity; i++)
+      if (bucket[i] != null)
+	max = Math.max(max, probeLength((RobinHoodEntry<K,V>) bucket[i], i));
+    int[] histogram = new int[max + 1];
+    for (int i = 0; i < capacity; i++)
+      if (bucket[i] != null)
+	histogram[probeLength((RobinHoodEntry<K,V>) bucket[i], i)]++;
+    return histogram;
+  }
+  /** Returns the average probe length of the entries, or 0 if there
+   * are none; a successful search inspects one bucket more. */
+  public double averageProbeLength() {
+    if (n == 0) return 0;
+    long total = 0;
+    for (int i = 0; i < capacity; i++)
+      if (bucket[i] != null)
+	total += probeLength((RobinHoodEntry<K,V>) bucket[i], i);
+    return total / (double) n;
+  }
+
+  /** Returns the home bucket of a hash code, by the MAD method. */
+  protected int home(int h) {
+    return (int) ((Math.abs(h*scale + shift) % prime) % capacity);
+  }
+  /** Returns the distance of bucket i from the home bucket of e. */
+  protected int probeLength(RobinHoodEntry<K,V> e, int i) {
+    int d = i - e.home;
+    return (d < 0) ? d + capacity : d;
+  }
+  /** Stores an entry starting at bucket i, where it is to go, and moves
+   * each entry closer to its home than the one carried forward. */
+  protected void insert(RobinHoodEntry<K,V> x, int i) {
+    int dist = probeLength(x, i);
+    while (true) {
+      RobinHoodEntry<K,V> e = (RobinHoodEntry<K,V>) bucket[i];
+      if (e == null) {
+	bucket[i] = x;
+	return;
+      }
+      int d = probeLength(e, i);
+      if (d < dist) {	// take the bucket from the richer entry
+	bucket[i] = x;
+	x = e;
+	dist = d;
+      }
+      i = (i + 1) % capacity;
+      dist++;
+    }
+  }
+
+  /** Entry that caches the hash code of its key and its home bucket. */
+  protected static class RobinHoodEntry<K,V> extends HashEntry<K,V> {
+    protected final int hash;	// hash code of the key
+    protected int home;	// home bucket in the current table
+    RobinHoodEntry(K k, V v, int hash, int home) {
+      super(k, v);
+      this.hash = hash;
+      this.home = home;
+    }
+  }
+}
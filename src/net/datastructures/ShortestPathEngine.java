@@ -0,0 +1,99 @@
+package net.datastructures;
+
+/**
+ * Dijkstra's algorithm for the single-source shortest path problem on a
+ * {@link CSRGraph} with non-negative integer edge weights.
+ *
+ * <p>Unlike {@link Dijkstra}, the engine does not decorate the graph:
+ * distances, predecessors and heap indices are kept in primitive arrays
+ * of a {@link ShortestPathResult}, and edge weights are read from the
+ * weight arrays of the graph or from an {@link EdgeWeightFunction}.  The
+ * engine itself is immutable, so any number of threads may run queries
+ * on one shared engine at the same time, provided each thread uses its
+ * own result objects.  A query may stop as soon as a target vertex is
+ * settled.
+ */
+public class ShortestPathEngine<V,E> {
+  protected final CSRGraph<V,E> graph;
+  protected final EdgeWeightFunction weights;	// null for graph weights
+
+  /** Creates an engine using the edge weights stored in the graph.
+   * @throws IllegalArgumentException if the graph has no weights */
+  public ShortestPathEngine(CSRGraph<V,E> g) {
+    if (!g.hasWeights())
+      throw new IllegalArgumentException("Graph has no edge weights");
+    graph = g;
+    weights = null;
+  }
+  /** Creates an engine using the given weight function. */
+  public ShortestPathEngine(CSRGraph<V,E> g, EdgeWeightFunction w) {
+    graph = g;
+    weights = w;
+  }
+  /** Returns the graph of this engine. */
+  public CSRGraph<V,E> graph() { return graph; }
+
+  /** Computes the distances from a source vertex to all vertices. */
+  public ShortestPathResult query(int source) {
+    return query(source, -1, null);
+  }
+  /** Computes a shortest path from a source vertex to a target vertex,
+   * stopping as soon as the target is settled. */
+  public ShortestPathResult query(int source, int target) {
+    return query(source, target, null);
+  }
+  /** Runs a query from the given source vertex to the given target
+   * vertex, or to all vertices if the target is -1.
+   * @param result a result of an earlier query on this graph to reuse,
+   * or null to allocate a new one
+   * @return the result of the query */
+  public ShortestPathResult query(int source, int target,
+				  ShortestPathResult result) {
+    int n = graph.numVertices();
+    if (source < 0 || source >= n || target < -1 || target >= n)
+      throw new InvalidPositionException("Vertex id out of range");
+    if (result == null || result.capacity() != n)
+      result = new ShortestPathResult(n);
+    else
+      result.reset();
+    result.source = source;
+    result.target = target;
+    long[] dist = result.dist;
+    int[] state = result.state;
+    int[] pred = result.pred;
+    int[] predEdge = result.predEdge;
+    dist[source] = 0;
+    result.touched[result.numTouched++] = source;
+    result.heapDecrease(source);
+    while (!result.heapIsEmpty()) {
+      int u = result.heapRemoveMin();	// the distance of u is final
+      if (u == target)
+	break;
+      long du = dist[u];
+      int end = graph.incidenceEnd(u);
+      for (int i = graph.incidenceStart(u); i < end; i++) {
+	int z = graph.target(i);
+	if (state[z] == ShortestPathResult.SETTLED)
+	  continue;	// z is in the cloud
+	int w = (weights == null) ? graph.weight(i)
+	  : weights.weight(graph.incidentEdge(i));
+	if (w < 0)
+	  throw new IllegalArgumentException("Negative edge weight");
+	long dz = du + w;
+	if (dz < dist[z]) {	// relaxation of the edge (u,z)
+	  if (state[z] == ShortestPathResult.UNSEEN)
+	    result.touched[result.numTouched++] = z;
+	  dist[z] = dz;
+	  pred[z] = u;
+	  predEdge[z] = graph.incidentEdge(i);
+	  result.heapDecrease(z);
+	}
+      }
+    }
+    return result;
+  }
+  /** Computes a shortest path between two vertices of the graph. */
+  public ShortestPathResult query(Vertex<V> source, Vertex<V> target) {
+    return query(graph.id(source), graph.id(target), null);
+  }
+}
@@ -0,0 +1,147 @@
+package net.datastructures;
+
+/**
+ * The outcome of a query of a {@link ShortestPathEngine}: distances,
+ * predecessors and the priority queue of the search, all stored in
+ * primitive arrays indexed by vertex id.  A result object may be passed
+ * back to the engine to be reused by a later query on the same graph;
+ * only the entries touched by the previous query are reset, so a local
+ * query on a large graph costs time proportional to the part of the
+ * graph it explores.  A result object must not be shared by threads
+ * running queries at the same time.
+ */
+public class ShortestPathResult {
+  /** Distance of the vertices that have not been settled. */
+  public static final long INFINITE = Long.MAX_VALUE;
+  protected static final int UNSEEN = -1;	// state of an untouched vertex
+  protected static final int SETTLED = -2;	// state of a settled vertex
+  protected long[] dist;	// tentative or final distance of each vertex
+  protected int[] pred;	// predecessor vertex on a shortest path
+  protected int[] predEdge;	// edge from the predecessor
+  protected int[] state;	// heap index, UNSEEN or SETTLED
+  protected int[] heap;	// binary heap of vertex ids keyed by dist
+  protected int heapSize;
+  protected int[] touched;	// vertices whose entries must be reset
+  protected int numTouched;
+  protected int numSettled;
+  protected int source = -1, target = -1;
+
+  /** Creates a result able to hold a query on a graph with the given
+   * number of vertices. */
+  public ShortestPathResult(int numVertices) {
+    dist = new long[numVertices];
+    pred = new int[numVertices];
+    predEdge = new int[numVertices];
+    state = new int[numVertices];
+    heap = new int[numVertices];
+    touched = new int[numVertices];
+    java.util.Arrays.fill(dist, INFINITE);
+    java.util.Arrays.fill(state, UNSEEN);
+  }
+  /** Returns the number of vertices this result can hold. */
+  public int capacity() { return dist.length; }
+  /** Undoes the changes made by the previous query. */
+  protected void reset() {
+    for (int i = 0; i < numTouched; i++) {
+      int v = touched[i];
+      dist[v] = INFINITE;
+      state[v] = UNSEEN;
+    }
+    numTouched = 0;
+    numSettled = 0;
+    heapSize = 0;
+    source = target = -1;
+  }
+
+  /** Returns the source vertex of the query. */
+  public int source() { return source; }
+  /** Returns the target vertex of the query, or -1 if the query
+   * computed the distances to all vertices. */
+  public int target() { return target; }
+  /** Returns the number of vertices settled by the query. */
+  public int settledCount() { return numSettled; }
+  /** Returns whether the distance of a vertex is final. */
+  public boolean isSettled(int v) { return state[v] == SETTLED; }
+  /** Returns the length of a shortest path from the source to the given
+   * vertex, or {@link #INFINITE} if the vertex is unreachable or was not
+   * settled before the query stopped at its target. */
+  public long distance(int v) {
+    return (state[v] == SETTLED) ? dist[v] : INFINITE;
+  }
+  /** Returns the predecessor of a settled vertex on a shortest path
+   * from the source, or -1 for the source and unsettled vertices. */
+  public int predecessor(int v) {
+    return (state[v] == SETTLED && v != source) ? pred[v] : -1;
+  }
+  /** Returns the vertex ids on a shortest path from the source to the
+   * given vertex, or null if the vertex was not settled. */
+  public int[] path(int v) {
+    if (state[v] != SETTLED) return null;
+    int len = 1;
+    for (int u = v; u != source; u = pred[u]) len++;
+    int[] p = new int[len];
+    for (int u = v; len > 0; u = pred[u]) p[--len] = u;
+    return p;
+  }
+  /** Returns the edge ids on a shortest path from the source to the
+   * given vertex, or null if the vertex was not settled. */
+  public int[] pathEdges(int v) {
+    if (state[v] != SETTLED) return null;
+    int len = 0;
+    for (int u = v; u != source; u = pred[u]) len++;
+    int[] p = new int[len];
+    for (int u = v; len > 0; u = pred[u]) p[--len] = predEdge[u];
+    return p;
+  }
+
+  // Indexed binary heap of vertex ids, keyed by dist
+
+  /** Returns whether the heap is empty. */
+  protected boolean heapIsEmpty() { return heapSize == 0; }
+  /** Adds a vertex to the heap or moves it up after its distance was
+   * lowered. */
+  protected void heapDecrease(int v) {
+    int i = state[v];
+    if (i < 0) {	// not yet in the heap
+      i = heapSize++;
+      heap[i] = v;
+    }
+    long d = dist[v];
+    while (i > 0) {	// up-heap bubbling
+      int p = (i - 1) >>> 1;
+      int u = heap[p];
+      if (dist[u] <= d) break;
+      heap[i] = u;
+      state[u] = i;
+      i = p;
+    }
+    heap[i] = v;
+    state[v] = i;
+  }
+  /** Removes and returns the vertex with minimum distance, marking it
+   * settled. */
+  protected int heapRemoveMin() {
+    int min = heap[0];
+    int last = heap[--heapSize];
+    if (heapSize > 0) {	// down-heap bubbling of the last vertex
+      long d = dist[last];
+      int i = 0;
+      int half = heapSize >>> 1;
+      while (i < half) {
+	int c = 2*i + 1;
+	int cv = heap[c];
+	if (c + 1 < heapSize && dist[heap[c+1]] < dist[cv])
+	  cv = heap[++c];
+	if (d <= dist[cv]) break;
+	heap[i] = cv;
+	state[cv] = i;
+	i = c;
+      }
+      heap[i] = last;
+      state[last] = i;
+    }
+    state[min] = SETTLED;
+    numSettled++;
+    return min;
+  }
+}
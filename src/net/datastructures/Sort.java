@@ -5,6 +5,12 @@ import java.io.IOException;
 import java.util.Comparator;
 import java.util.Random;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 /**
  * Class containing various sorting algorithms.
  *
@@ -89,6 +95,166 @@ public class Sort {
       System.arraycopy(in, y, out, z, end2 - y);
   }
   //end#fragment mergeSort2
+
+  /** Subarrays with at most this many elements are sorted, and runs
+   * with at most this many elements are merged, by a single thread. */
+  protected static final int PARALLEL_CUTOFF = 8192;
+  /** Subarrays with at most this many elements are insertion sorted. */
+  protected static final int INSERTION_CUTOFF = 32;
+
+  /** Sorts an array with a comparator using a parallel, stable merge
+   * sort on the common fork-join pool. */
+  public static <E> void parallelMergeSort(E[] a, Comparator<E> c) {
+    parallelMergeSort(a, c, ForkJoinPool.commonPool(), null);
+  }
+  /** Sorts an array with a comparator using a parallel, stable merge
+   * sort on the given pool. */
+  public static <E> void parallelMergeSort(E[] a, Comparator<E> c,
+					   ForkJoinPool pool) {
+    parallelMergeSort(a, c, pool, null);
+  }
+  /** Sorts an array with a comparator using a parallel, stable merge
+   * sort on the given pool.  The halves of a subarray are sorted by
+   * separate tasks and large runs are merged by splitting them into
+   * independent merges, down to {@link #PARALLEL_CUTOFF} elements.
+   * @param scratch a buffer at least as long as the array, which may
+   * be reused across calls; if null or too short a new one is allocated
+   */
+  public static <E> void parallelMergeSort(E[] a, Comparator<E> c,
+					   ForkJoinPool pool, Object[] scratch) {
+    int n = a.length;
+    if (n < 2) return;
+    if (scratch == null || scratch.length < n)
+      scratch = new Object[n];
+    E[] tmp = (E[]) scratch;
+    System.arraycopy(a, 0, tmp, 0, n); // both arrays start with the input
+    if (n <= PARALLEL_CUTOFF)
+      mergeSortInto(tmp, a, c, 0, n);
+    else
+      pool.invoke(new MergeSortTask<E>(tmp, a, c, 0, n));
+    Arrays.fill(scratch, 0, n, null); // do not keep the elements alive
+  }
+  /** Sorts src[lo..hi-1] into dst[lo..hi-1], using src as scratch
+   * space.  Both arrays must hold the same elements in that range. */
+  protected static <E> void mergeSortInto(E[] src, E[] dst, Comparator<E> c,
+					  int lo, int hi) {
+    if (hi - lo <= INSERTION_CUTOFF) {
+      insertionSort(dst, c, lo, hi);
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    mergeSortInto(dst, src, c, lo, mid); // sorted halves land in src
+    mergeSortInto(dst, src, c, mid, hi);
+    if (c.compare(src[mid-1], src[mid]) <= 0) // halves already in order
+      System.arraycopy(src, lo, dst, lo, hi - lo);
+    else
+      mergeRuns(src, lo, mid, mid, hi, dst, lo, c);
+  }
+  /** Sorts a[lo..hi-1] by stable insertion sort. */
+  protected static <E> void insertionSort(E[] a, Comparator<E> c,
+					  int lo, int hi) {
+    for (int i = lo + 1; i < hi; i++) {
+      E x = a[i];
+      int j = i - 1;
+      while (j >= lo && c.compare(a[j], x) > 0) {
+	a[j+1] = a[j];
+	j--;
+      }
+      a[j+1] = x;
+    }
+  }
+  /** Merges the sorted runs src[lo1..hi1-1] and src[lo2..hi2-1] into dst
+   * starting at index d; on equal keys the first run goes first. */
+  protected static <E> void mergeRuns(E[] src, int lo1, int hi1, int lo2,
+				      int hi2, E[] dst, int d, Comparator<E> c) {
+    while (lo1 < hi1 && lo2 < hi2)
+      if (c.compare(src[lo1], src[lo2]) <= 0) dst[d++] = src[lo1++];
+      else dst[d++] = src[lo2++];
+    if (lo1 < hi1)
+      System.arraycopy(src, lo1, dst, d, hi1 - lo1);
+    else if (lo2 < hi2)
+      System.arraycopy(src, lo2, dst, d, hi2 - lo2);
+  }
+  /** Returns the first index in a[lo..hi-1] whose element is not less
+   * than x, or hi if there is none. */
+  protected static <E> int lowerBound(E[] a, int lo, int hi, E x,
+				      Comparator<E> c) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (c.compare(a[mid], x) < 0) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+  /** Returns the first index in a[lo..hi-1] whose element is greater
+   * than x, or hi if there is none. */
+  protected static <E> int upperBound(E[] a, int lo, int hi, E x,
+				      Comparator<E> c) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (c.compare(a[mid], x) <= 0) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+  /** Task sorting src[lo..hi-1] into dst[lo..hi-1], as mergeSortInto. */
+  protected static class MergeSortTask<E> extends RecursiveAction {
+    protected final E[] src, dst;
+    protected final Comparator<E> c;
+    protected final int lo, hi;
+    MergeSortTask(E[] src, E[] dst, Comparator<E> c, int lo, int hi) {
+      this.src = src; this.dst = dst; this.c = c;
+      this.lo = lo; this.hi = hi;
+    }
+    protected void compute() {
+      if (hi - lo <= PARALLEL_CUTOFF) {
+	mergeSortInto(src, dst, c, lo, hi);
+	return;
+      }
+      int mid = (lo + hi) >>> 1;
+      invokeAll(new MergeSortTask<E>(dst, src, c, lo, mid),
+		new MergeSortTask<E>(dst, src, c, mid, hi));
+      if (c.compare(src[mid-1], src[mid]) <= 0)
+	System.arraycopy(src, lo, dst, lo, hi - lo);
+      else
+	new MergeTask<E>(src, lo, mid, mid, hi, dst, lo, c).compute();
+    }
+    private static final long serialVersionUID = 1L;
+  }
+  /** Task merging two sorted runs as mergeRuns does.  A large merge is
+   * split around the middle element of the longer run, located in the
+   * other run by binary search, into two independent merges. */
+  protected static class MergeTask<E> extends RecursiveAction {
+    protected final E[] src, dst;
+    protected final int lo1, hi1, lo2, hi2, d;
+    protected final Comparator<E> c;
+    MergeTask(E[] src, int lo1, int hi1, int lo2, int hi2, E[] dst, int d,
+	      Comparator<E> c) {
+      this.src = src; this.lo1 = lo1; this.hi1 = hi1;
+      this.lo2 = lo2; this.hi2 = hi2;
+      this.dst = dst; this.d = d; this.c = c;
+    }
+    protected void compute() {
+      int n1 = hi1 - lo1, n2 = hi2 - lo2;
+      if (n1 + n2 <= PARALLEL_CUTOFF) {
+	mergeRuns(src, lo1, hi1, lo2, hi2, dst, d, c);
+	return;
+      }
+      int m1, m2;
+      if (n1 >= n2) { // elements of run 2 equal to the split go after it
+	m1 = (lo1 + hi1) >>> 1;
+	m2 = lowerBound(src, lo2, hi2, src[m1], c);
+      }
+      else { // elements of run 1 equal to the split go before it
+	m2 = (lo2 + hi2) >>> 1;
+	m1 = upperBound(src, lo1, hi1, src[m2], c);
+      }
+      int dm = d + (m1 - lo1) + (m2 - lo2);
+      invokeAll(new MergeTask<E>(src, lo1, m1, lo2, m2, dst, d, c),
+		new MergeTask<E>(src, m1, hi1, m2, hi2, dst, dm, c));
+    }
+    private static final long serialVersionUID = 1L;
+  }
       
   /**
    * Sorts the elements of list in in nondecreasing order according to
@@ -168,7 +334,1000 @@ public class Sort {
     quickSortStep(s, c, leftIndex+1, rightBound);
   }
   //end#fragment quickSortStep
+
+  /** Subarrays shorter than this are sorted by binary insertion sort
+   * alone in adaptiveMergeSort, and runs are extended to about this
+   * length. */
+  protected static final int MIN_MERGE = 32;
+
+  /**
+   * Sorts an array with a comparator using an adaptive, stable merge
+   * sort in the style of TimSort.  The array is cut into natural runs,
+   * ascending or strictly descending (reversed in place); short runs are
+   * extended by binary insertion sort; and runs are merged, smaller ones
+   * first, while their lengths on a stack keep the merges balanced.  A
+   * merge switches to galloping, exponential search, when one run keeps
+   * winning.  Sorted input takes n-1 comparisons, and input made of k
+   * sorted batches O(n log k) time; the worst case is O(n log n).
+   **/
+  public static <E> void adaptiveMergeSort(E[] a, Comparator<E> c) {
+    adaptiveMergeSort(a, c, 0, a.length);
+  }
+  /** Sorts a[lo..hi-1] with the adaptive merge sort. */
+  public static <E> void adaptiveMergeSort(E[] a, Comparator<E> c,
+					   int lo, int hi) {
+    int n = hi - lo;
+    if (n < 2) return;
+    if (n < MIN_MERGE) {
+      binaryInsertionSort(a, c, lo, hi, lo + naturalRun(a, c, lo, hi));
+      return;
+    }
+    RunMerger<E> merger = new RunMerger<E>(a, c);
+    int minRun = minRunLength(n);
+    while (n > 0) {
+      int run = naturalRun(a, c, lo, hi);
+      if (run < minRun) { // extend the run to minRun elements
+	int forced = Math.min(n, minRun);
+	binaryInsertionSort(a, c, lo, lo + forced, lo + run);
+	run = forced;
+      }
+      merger.push(lo, run);
+      merger.mergeCollapse();
+      lo += run;
+      n -= run;
+    }
+    merger.mergeForceCollapse();
+  }
+  /** Returns the length of the run starting at a[lo], reversing it if
+   * it is strictly descending, so that it ends up ascending. */
+  protected static <E> int naturalRun(E[] a, Comparator<E> c, int lo, int hi) {
+    int end = lo + 1;
+    if (end == hi) return 1;
+    if (c.compare(a[end++], a[lo]) < 0) { // strictly descending, so it
+      while (end < hi && c.compare(a[end], a[end-1]) < 0) end++;
+      for (int i = lo, j = end - 1; i < j; i++, j--) // has no equal keys
+	swap(a, i, j); // and reversing it keeps the sort stable
+    }
+    else
+      while (end < hi && c.compare(a[end], a[end-1]) >= 0) end++;
+    return end - lo;
+  }
+  /** Sorts a[lo..hi-1], whose prefix a[lo..start-1] is sorted, by
+   * inserting each remaining element after the equal elements before
+   * it, found by binary search. */
+  protected static <E> void binaryInsertionSort(E[] a, Comparator<E> c,
+						int lo, int hi, int start) {
+    if (start == lo) start++;
+    for (; start < hi; start++) {
+      E x = a[start];
+      int at = upperBound(a, lo, start, x, c);
+      System.arraycopy(a, at, a, at + 1, start - at);
+      a[at] = x;
+    }
+  }
+  /** Returns the minimum run length for n elements: a number between
+   * MIN_MERGE/2 and MIN_MERGE such that n/minRun is a power of two or
+   * slightly less, so the final merges are balanced. */
+  protected static int minRunLength(int n) {
+    int r = 0; // becomes 1 if any bit shifted off is set
+    while (n >= MIN_MERGE) {
+      r |= (n & 1);
+      n >>= 1;
+    }
+    return n + r;
+  }
+
+  /** The stack of pending runs of an adaptive merge sort, and the
+   * galloping merges of adjacent runs. */
+  protected static class RunMerger<E> {
+    /** Number of wins in a row after which a merge starts galloping. */
+    protected static final int MIN_GALLOP = 7;
+    protected final E[] a;
+    protected final Comparator<E> c;
+    protected E[] tmp; // buffer holding the run being merged
+    protected int minGallop = MIN_GALLOP; // adapts to the data
+    protected int[] runBase = new int[49], runLen = new int[49];
+    protected int stackSize = 0;
+    RunMerger(E[] a, Comparator<E> c) {
+      this.a = a;
+      this.c = c;
+      tmp = (E[]) new Object[Math.max(16, Math.min(256, a.length >>> 1))];
+    }
+    /** Pushes the run a[base..base+len-1] on the stack. */
+    void push(int base, int len) {
+      runBase[stackSize] = base;
+      runLen[stackSize++] = len;
+    }
+    /** Merges runs until, from the top of the stack, each run is longer
+     * than the next, and longer than the next two together; the run
+     * lengths thus grow at least as fast as the Fibonacci numbers, so
+     * 49 entries are enough for any array. */
+    void mergeCollapse() {
+      while (stackSize > 1) {
+	int n = stackSize - 2;
+	if ((n > 0 && runLen[n-1] <= runLen[n] + runLen[n+1])
+	    || (n > 1 && runLen[n-2] <= runLen[n] + runLen[n-1])) {
+	  if (runLen[n-1] < runLen[n+1]) n--;
+	}
+	else if (runLen[n] > runLen[n+1])
+	  break;
+	mergeAt(n);
+      }
+    }
+    /** Merges all the runs on the stack. */
+    void mergeForceCollapse() {
+      while (stackSize > 1) {
+	int n = stackSize - 2;
+	if (n > 0 && runLen[n-1] < runLen[n+1]) n--;
+	mergeAt(n);
+      }
+    }
+    /** Merges the runs at stack indices i and i+1. */
+    void mergeAt(int i) {
+      int base1 = runBase[i], len1 = runLen[i];
+      int base2 = runBase[i+1], len2 = runLen[i+1];
+      runLen[i] = len1 + len2;
+      if (i == stackSize - 3) { // the merged runs are not on top
+	runBase[i+1] = runBase[i+2];
+	runLen[i+1] = runLen[i+2];
+      }
+      stackSize--;
+      // elements of run 1 not greater than the first of run 2, and
+      // elements of run 2 not less than the last of run 1, stay put
+      int k = gallopRight(a[base2], a, base1, len1, 0);
+      base1 += k;
+      len1 -= k;
+      if (len1 == 0) return;
+      len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1);
+      if (len2 == 0) return;
+      if (len1 <= len2) mergeLo(base1, len1, base2, len2);
+      else mergeHi(base1, len1, base2, len2);
+    }
+    /** Merges from the left, with run 1 copied to the buffer.  The first
+     * element of run 2 is less than the first of run 1, and the last
+     * of run 1 is greater than all of run 2. */
+    void mergeLo(int base1, int len1, int base2, int len2) {
+      E[] t = buffer(len1);
+      System.arraycopy(a, base1, t, 0, len1);
+      int c1 = 0, c2 = base2, dest = base1; // dest never passes c2
+      int end2 = base2 + len2;
+      while (c1 < len1 && c2 < end2) {
+	int wins1 = 0, wins2 = 0;
+	while (c1 < len1 && c2 < end2) // one element at a time
+	  if (c.compare(a[c2], t[c1]) < 0) {
+	    a[dest++] = a[c2++];
+	    wins1 = 0;
+	    if (++wins2 >= minGallop) break;
+	  }
+	  else {
+	    a[dest++] = t[c1++];
+	    wins2 = 0;
+	    if (++wins1 >= minGallop) break;
+	  }
+	while (c1 < len1 && c2 < end2) { // galloping
+	  int k1 = gallopRight(a[c2], t, c1, len1 - c1, 0);
+	  System.arraycopy(t, c1, a, dest, k1);
+	  dest += k1;
+	  c1 += k1;
+	  if (c1 == len1) break;
+	  int k2 = gallopLeft(t[c1], a, c2, end2 - c2, 0);
+	  System.arraycopy(a, c2, a, dest, k2);
+	  dest += k2;
+	  c2 += k2;
+	  if (c2 == end2) break;
+	  if (k1 < MIN_GALLOP && k2 < MIN_GALLOP) { // not paying off
+	    minGallop++;
+	    break;
+	  }
+	  if (minGallop > 1) minGallop--;
+	}
+      }
+      if (c1 < len1) // the rest of run 2 is already in place
+	System.arraycopy(t, c1, a, dest, len1 - c1);
+    }
+    /** Merges from the right, with run 2 copied to the buffer, under the
+     * same conditions as mergeLo. */
+    void mergeHi(int base1, int len1, int base2, int len2) {
+      E[] t = buffer(len2);
+      System.arraycopy(a, base2, t, 0, len2);
+      int c1 = base1 + len1 - 1, c2 = len2 - 1, dest = base2 + len2 - 1;
+      while (c1 >= base1 && c2 >= 0) {
+	int wins1 = 0, wins2 = 0;
+	while (c1 >= base1 && c2 >= 0) // one element at a time
+	  if (c.compare(t[c2], a[c1]) < 0) {
+	    a[dest--] = a[c1--];
+	    wins2 = 0;
+	    if (++wins1 >= minGallop) break;
+	  }
+	  else {
+	    a[dest--] = t[c2--];
+	    wins1 = 0;
+	    if (++wins2 >= minGallop) break;
+	  }
+	while (c1 >= base1 && c2 >= 0) { // galloping
+	  int n1 = c1 - base1 + 1;
+	  int k1 = n1 - gallopRight(t[c2], a, base1, n1, n1 - 1);
+	  System.arraycopy(a, c1 - k1 + 1, a, dest - k1 + 1, k1);
+	  dest -= k1;
+	  c1 -= k1;
+	  if (c1 < base1) break;
+	  int k2 = c2 + 1 - gallopLeft(a[c1], t, 0, c2 + 1, c2);
+	  System.arraycopy(t, c2 - k2 + 1, a, dest - k2 + 1, k2);
+	  dest -= k2;
+	  c2 -= k2;
+	  if (c2 < 0) break;
+	  if (k1 < MIN_GALLOP && k2 < MIN_GALLOP) {
+	    minGallop++;
+	    break;
+	  }
+	  if (minGallop > 1) minGallop--;
+	}
+      }
+      if (c2 >= 0) // the rest of run 1 is already in place
+	System.arraycopy(t, 0, a, dest - c2, c2 + 1);
+    }
+    /** Returns the number of elements of the sorted x[base..base+len-1]
+     * that are less than key, searching exponentially from index
+     * base+hint and then by binary search. */
+    int gallopLeft(E key, E[] x, int base, int len, int hint) {
+      int lastOfs = 0, ofs = 1;
+      if (c.compare(key, x[base + hint]) > 0) { // search right of hint
+	int maxOfs = len - hint;
+	while (ofs < maxOfs && c.compare(key, x[base + hint + ofs]) > 0) {
+	  lastOfs = ofs;
+	  ofs = (ofs << 1) + 1;
+	  if (ofs <= 0) ofs = maxOfs; // overflow
+	}
+	if (ofs > maxOfs) ofs = maxOfs;
+	lastOfs += hint;
+	ofs += hint;
+      }
+      else { // search left of hint
+	int maxOfs = hint + 1;
+	while (ofs < maxOfs && c.compare(key, x[base + hint - ofs]) <= 0) {
+	  lastOfs = ofs;
+	  ofs = (ofs << 1) + 1;
+	  if (ofs <= 0) ofs = maxOfs;
+	}
+	if (ofs > maxOfs) ofs = maxOfs;
+	int t = lastOfs;
+	lastOfs = hint - ofs;
+	ofs = hint - t;
+      }
+      // now x[base+lastOfs] < key <= x[base+ofs]
+      lastOfs++;
+      while (lastOfs < ofs) {
+	int m = lastOfs + ((ofs - lastOfs) >>> 1);
+	if (c.compare(key, x[base + m]) > 0) lastOfs = m + 1;
+	else ofs = m;
+      }
+      return ofs;
+    }
+    /** Returns the number of elements of the sorted x[base..base+len-1]
+     * that are not greater than key, searching as gallopLeft. */
+    int gallopRight(E key, E[] x, int base, int len, int hint) {
+      int lastOfs = 0, ofs = 1;
+      if (c.compare(key, x[base + hint]) < 0) { // search left of hint
+	int maxOfs = hint + 1;
+	while (ofs < maxOfs && c.compare(key, x[base + hint - ofs]) < 0) {
+	  lastOfs = ofs;
+	  ofs = (ofs << 1) + 1;
+	  if (ofs <= 0) ofs = maxOfs;
+	}
+	if (ofs > maxOfs) ofs = maxOfs;
+	int t = lastOfs;
+	lastOfs = hint - ofs;
+	ofs = hint - t;
+      }
+      else { // search right of hint
+	int maxOfs = len - hint;
+	while (ofs < maxOfs && c.compare(key, x[base + hint + ofs]) >= 0) {
+	  lastOfs = ofs;
+	  ofs = (ofs << 1) + 1;
+	  if (ofs <= 0) ofs = maxOfs;
+	}
+	if (ofs > maxOfs) ofs = maxOfs;
+	lastOfs += hint;
+	ofs += hint;
+      }
+      // now x[base+lastOfs] <= key < x[base+ofs]
+      lastOfs++;
+      while (lastOfs < ofs) {
+	int m = lastOfs + ((ofs - lastOfs) >>> 1);
+	if (c.compare(key, x[base + m]) < 0) ofs = m;
+	else lastOfs = m + 1;
+      }
+      return ofs;
+    }
+    /** Returns the buffer, grown to hold at least n elements. */
+    E[] buffer(int n) {
+      if (tmp.length < n)
+	tmp = (E[]) new Object[Math.max(n, Math.min(a.length, 2*tmp.length))];
+      return tmp;
+    }
+  }
+
+  /** Number of sample elements taken per bucket by parallelSampleSort. */
+  protected static final int OVERSAMPLING = 32;
+
+  /** Sorts an array with a comparator using a parallel, stable sample
+   * sort on the common fork-join pool. */
+  public static <E> void parallelSampleSort(E[] a, Comparator<E> c) {
+    parallelSampleSort(a, c, ForkJoinPool.commonPool());
+  }
+  /**
+   * Sorts an array with a comparator using a parallel, stable sample
+   * sort on the given pool.  A sorted random sample of the array, taken
+   * {@link #OVERSAMPLING} times larger than the number of buckets so the
+   * buckets come out balanced, gives distinct splitters; each element
+   * goes to the bucket between two splitters or, if it equals one, to
+   * the equality bucket of that splitter, which needs no sorting, so
+   * heavily duplicated keys cost no more than distinct ones.  Blocks of
+   * the array are classified in parallel and scattered stably into a
+   * buffer, and the buckets are then sorted independently with
+   * adaptiveMergeSort, with no merge phase.
+   **/
+  public static <E> void parallelSampleSort(E[] a, Comparator<E> c,
+					    ForkJoinPool pool) {
+    int n = a.length;
+    int p = pool.getParallelism();
+    int buckets = Math.min(4 * p, n / PARALLEL_CUTOFF); // before equality
+    if (buckets < 2) {
+      adaptiveMergeSort(a, c);
+      return;
+    }
+    // choose distinct splitters from a sorted random sample
+    Random r = new Random(n);
+    E[] sample = (E[]) new Object[buckets * OVERSAMPLING];
+    for (int i = 0; i < sample.length; i++)
+      sample[i] = a[r.nextInt(n)];
+    adaptiveMergeSort(sample, c);
+    E[] splitters = (E[]) new Object[buckets - 1];
+    int m = 0;
+    for (int i = 1; i < buckets; i++) {
+      E s = sample[i * OVERSAMPLING];
+      if (m == 0 || c.compare(splitters[m-1], s) < 0)
+	splitters[m++] = s;
+    }
+    SampleSort<E> job = new SampleSort<E>(a, c, Arrays.copyOf(splitters, m),
+					  Math.min(n / 1024, 4 * p));
+    pool.invoke(job.new Phase(SampleSort.CLASSIFY, 0, job.blocks));
+    job.offsets();
+    pool.invoke(job.new Phase(SampleSort.SCATTER, 0, job.blocks));
+    pool.invoke(job.new Phase(SampleSort.SORT, 0, job.numBuckets));
+  }
+  /** State of a parallel sample sort.  Bucket 2i+1 holds the elements
+   * equal to splitter i, and bucket 2i those between splitters i-1 and
+   * i; the array is cut into blocks, each classified by one task. */
+  protected static class SampleSort<E> {
+    static final int CLASSIFY = 0, SCATTER = 1, SORT = 2;
+    final E[] a, buffer;
+    final Comparator<E> c;
+    final E[] splitters;
+    final int n, blocks, blockSize, numBuckets;
+    final int[] bucketOf; // bucket of each element
+    final int[][] count; // elements of each bucket in each block, then
+			 // where the block starts writing them
+    final int[] bucketStart; // start of each bucket, and n at the end
+    SampleSort(E[] a, Comparator<E> c, E[] splitters, int blocks) {
+      this.a = a;
+      this.c = c;
+      this.splitters = splitters;
+      n = a.length;
+      this.blocks = blocks;
+      blockSize = (n + blocks - 1) / blocks;
+      numBuckets = 2 * splitters.length + 1;
+      buffer = (E[]) new Object[n];
+      bucketOf = new int[n];
+      count = new int[blocks][numBuckets];
+      bucketStart = new int[numBuckets + 1];
+    }
+    /** Returns the bucket of an element, by binary search. */
+    int bucket(E x) {
+      int lo = 0, hi = splitters.length;
+      while (lo < hi) { // first splitter not less than x
+	int mid = (lo + hi) >>> 1;
+	if (c.compare(splitters[mid], x) < 0) lo = mid + 1;
+	else hi = mid;
+      }
+      if (lo < splitters.length && c.compare(splitters[lo], x) == 0)
+	return 2*lo + 1;
+      return 2*lo;
+    }
+    /** Turns the counts into write offsets: a bucket holds the elements
+     * of block 0 first, then those of block 1, and so on. */
+    void offsets() {
+      int sum = 0;
+      for (int b = 0; b < numBuckets; b++) {
+	bucketStart[b] = sum;
+	for (int k = 0; k < blocks; k++) {
+	  int t = count[k][b];
+	  count[k][b] = sum;
+	  sum += t;
+	}
+      }
+      bucketStart[numBuckets] = n;
+    }
+    /** Does the work of a phase for one block or bucket. */
+    void run(int phase, int i) {
+      if (phase == SORT) { // sort a bucket in the buffer and copy it back
+	int lo = bucketStart[i], hi = bucketStart[i+1];
+	if (i % 2 == 0) adaptiveMergeSort(buffer, c, lo, hi);
+	System.arraycopy(buffer, lo, a, lo, hi - lo);
+	Arrays.fill(buffer, lo, hi, null);
+	return;
+      }
+      int lo = i * blockSize, hi = Math.min(n, lo + blockSize);
+      int[] cnt = count[i];
+      if (phase == CLASSIFY)
+	for (int j = lo; j < hi; j++)
+	  cnt[bucketOf[j] = bucket(a[j])]++;
+      else // SCATTER, keeping the order of the block
+	for (int j = lo; j < hi; j++)
+	  buffer[cnt[bucketOf[j]]++] = a[j];
+    }
+    /** Task running a phase for the blocks or buckets lo..hi-1. */
+    class Phase extends RecursiveAction {
+      final int phase, lo, hi;
+      Phase(int phase, int lo, int hi) {
+	this.phase = phase; this.lo = lo; this.hi = hi;
+      }
+      protected void compute() {
+	if (hi - lo == 1)
+	  run(phase, lo);
+	else {
+	  int mid = (lo + hi) >>> 1;
+	  invokeAll(new Phase(phase, lo, mid), new Phase(phase, mid, hi));
+	}
+      }
+      private static final long serialVersionUID = 1L;
+    }
+  }
+
+  /** Subarrays with more than this many elements take their pivot as
+   * the ninther, the median of three medians of three. */
+  protected static final int NINTHER_CUTOFF = 128;
+
+  /**
+   * Sorts the elements of array s in nondecreasing order according to
+   * comparator c, using introspective sort: a quick sort that cannot
+   * take quadratic time.  The pivot is a median of three or, for large
+   * subarrays, a ninther; elements equal to the pivot are gathered in
+   * the middle by a three-way partition and not sorted again; only the
+   * smaller side is sorted recursively, so the recursion depth is
+   * O(log n); small subarrays are insertion sorted; and a subarray is
+   * heap sorted once the partitioning gets too deep, which bounds the
+   * time by O(n log n).  The sort is not stable.
+   **/
+  public static <E> void introSort(E[] s, Comparator<E> c) {
+    introSort(s, c, 0, s.length);
+  }
+  /** Sorts s[lo..hi-1] with introspective sort. */
+  public static <E> void introSort(E[] s, Comparator<E> c, int lo, int hi) {
+    if (hi - lo < 2) return;
+    introSortStep(s, c, lo, hi, 2 * log2(hi - lo));
+  }
+  /** Sorts s[lo..hi-1], heap sorting a subarray once the depth limit
+   * of partitions is used up. */
+  protected static <E> void introSortStep(E[] s, Comparator<E> c,
+					  int lo, int hi, int depth) {
+    while (hi - lo > INSERTION_CUTOFF) {
+      if (depth-- == 0) {
+	heapSort(s, c, lo, hi);
+	return;
+      }
+      E pivot = s[pivotIndex(s, c, lo, hi)];
+      // three-way partition: s[lo..lt-1] < pivot, s[lt..gt-1] == pivot,
+      // s[gt..hi-1] > pivot
+      int lt = lo, i = lo, gt = hi;
+      while (i < gt) {
+	int cmp = c.compare(s[i], pivot);
+	if (cmp < 0) swap(s, lt++, i++);
+	else if (cmp > 0) swap(s, i, --gt);
+	else i++;
+      }
+      if (lt - lo < hi - gt) { // recur on the smaller side, loop on the other
+	introSortStep(s, c, lo, lt, depth);
+	lo = gt;
+      }
+      else {
+	introSortStep(s, c, gt, hi, depth);
+	hi = lt;
+      }
+    }
+    insertionSort(s, c, lo, hi);
+  }
+  /** Returns the index of the pivot for s[lo..hi-1]. */
+  protected static <E> int pivotIndex(E[] s, Comparator<E> c, int lo, int hi) {
+    int n = hi - lo, mid = (lo + hi) >>> 1, last = hi - 1;
+    if (n <= NINTHER_CUTOFF)
+      return median3(s, c, lo, mid, last);
+    int step = n / 8;
+    return median3(s, c, median3(s, c, lo, lo + step, lo + 2*step),
+		   median3(s, c, mid - step, mid, mid + step),
+		   median3(s, c, last - 2*step, last - step, last));
+  }
+  /** Returns the index of the median of s[i], s[j] and s[k]. */
+  protected static <E> int median3(E[] s, Comparator<E> c,
+				   int i, int j, int k) {
+    if (c.compare(s[i], s[j]) < 0) {
+      if (c.compare(s[j], s[k]) < 0) return j;
+      return (c.compare(s[i], s[k]) < 0) ? k : i;
+    }
+    if (c.compare(s[i], s[k]) < 0) return i;
+    return (c.compare(s[j], s[k]) < 0) ? k : j;
+  }
+  /** Sorts s[lo..hi-1] in place with heap sort, in O(n log n) time. */
+  protected static <E> void heapSort(E[] s, Comparator<E> c, int lo, int hi) {
+    int n = hi - lo;
+    for (int i = n/2 - 1; i >= 0; i--) // build a max-heap bottom-up
+      siftDown(s, c, lo, i, n);
+    for (int m = n - 1; m > 0; m--) { // move the maximum behind the heap
+      swap(s, lo, lo + m);
+      siftDown(s, c, lo, 0, m);
+    }
+  }
+  /** Moves the element at heap index i of the max-heap s[lo..lo+n-1]
+   * down to its place. */
+  private static <E> void siftDown(E[] s, Comparator<E> c, int lo,
+				   int i, int n) {
+    E x = s[lo + i];
+    while (true) {
+      int child = 2*i + 1;
+      if (child >= n) break;
+      if (child + 1 < n && c.compare(s[lo + child + 1], s[lo + child]) > 0)
+	child++;
+      if (c.compare(s[lo + child], x) <= 0) break;
+      s[lo + i] = s[lo + child];
+      i = child;
+    }
+    s[lo + i] = x;
+  }
+  /** Swaps s[i] and s[j]. */
+  protected static <E> void swap(E[] s, int i, int j) {
+    E temp = s[i];
+    s[i] = s[j];
+    s[j] = temp;
+  }
+  /** Returns the floor of the base-2 logarithm of a positive n. */
+  protected static int log2(int n) {
+    return 31 - Integer.numberOfLeadingZeros(n);
+  }
   
+  /**
+   * Sorts an array by the keys that a function extracts from its
+   * elements, ordered by comparator c.  Each key is computed exactly
+   * once: the elements are paired with their keys, the pairs are sorted
+   * with adaptiveMergeSort comparing keys only, and the elements are
+   * written back in order.  This pays when computing a key, by parsing
+   * or looking it up, costs more than comparing two keys.  Stable.
+   **/
+  public static <E,K> void sortByKey(E[] a, Function<? super E, K> key,
+				     Comparator<K> c) {
+    int n = a.length;
+    if (n < 2) return;
+    Keyed<K,E>[] pairs = (Keyed<K,E>[]) new Keyed[n];
+    for (int i = 0; i < n; i++)
+      pairs[i] = new Keyed<K,E>(key.apply(a[i]), a[i]);
+    adaptiveMergeSort(pairs, new KeyComparator<K,E>(c));
+    for (int i = 0; i < n; i++)
+      a[i] = pairs[i].element;
+  }
+  /** Sorts an array by the natural order of the keys that a function
+   * extracts from its elements, computing each key once.  Stable. */
+  public static <E,K extends Comparable<K>> void sortByKey(E[] a,
+      Function<? super E, K> key) {
+    sortByKey(a, key, new DefaultComparator<K>());
+  }
+  /** Sorts an array by int keys extracted from its elements, computing
+   * each key once into an int array and sorting it with argSort, with
+   * no boxing and no comparator.  Stable. */
+  public static <E> void sortByIntKey(E[] a, ToIntFunction<? super E> key) {
+    int[] keys = new int[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = key.applyAsInt(a[i]);
+    permute(a, argSort(keys));
+  }
+  /** Sorts an array by long keys extracted from its elements, as
+   * sortByIntKey.  Stable. */
+  public static <E> void sortByLongKey(E[] a, ToLongFunction<? super E> key) {
+    long[] keys = new long[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = key.applyAsLong(a[i]);
+    permute(a, argSort(keys));
+  }
+  /** Sorts an array by double keys extracted from its elements, as
+   * sortByIntKey, in the order of Arrays.sort(double[]).  Stable. */
+  public static <E> void sortByDoubleKey(E[] a,
+					 ToDoubleFunction<? super E> key) {
+    double[] keys = new double[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = key.applyAsDouble(a[i]);
+    permute(a, argSort(keys));
+  }
+  /** Rearranges a so that its element i is the old element p[i]. */
+  protected static <E> void permute(E[] a, int[] p) {
+    E[] old = a.clone();
+    for (int i = 0; i < a.length; i++)
+      a[i] = old[p[i]];
+  }
+  /** An element paired with its key. */
+  protected static class Keyed<K,E> {
+    final K key;
+    final E element;
+    Keyed(K key, E element) {
+      this.key = key;
+      this.element = element;
+    }
+  }
+  /** Comparator of pairs by their keys. */
+  protected static class KeyComparator<K,E> implements Comparator<Keyed<K,E>> {
+    final Comparator<K> c;
+    KeyComparator(Comparator<K> c) { this.c = c; }
+    public int compare(Keyed<K,E> x, Keyed<K,E> y) {
+      return c.compare(x.key, y.key);
+    }
+  }
+
+  /**
+   * Rearranges array a so that a[k] holds the element that would be
+   * there if a were sorted according to comparator c, with no greater
+   * element before it and no smaller one after it.  It is introselect:
+   * a quick select with the pivots of introSort and a three-way
+   * partition, which heap sorts what is left if the partitioning gets
+   * too deep, so it takes O(n) expected and O(n log n) worst-case time.
+   * @throws IllegalArgumentException if k is not an index of a
+   **/
+  public static <E> void nthElement(E[] a, Comparator<E> c, int k) {
+    checkRank(a.length, k);
+    int lo = 0, hi = a.length, depth = 2 * log2(Math.max(1, a.length));
+    while (hi - lo > INSERTION_CUTOFF) {
+      if (depth-- == 0) {
+	heapSort(a, c, lo, hi);
+	return;
+      }
+      E pivot = a[pivotIndex(a, c, lo, hi)];
+      int lt = lo, i = lo, gt = hi;
+      while (i < gt) {
+	int cmp = c.compare(a[i], pivot);
+	if (cmp < 0) swap(a, lt++, i++);
+	else if (cmp > 0) swap(a, i, --gt);
+	else i++;
+      }
+      if (k < lt) hi = lt;
+      else if (k >= gt) lo = gt;
+      else return; // a[k] equals the pivot
+    }
+    insertionSort(a, c, lo, hi);
+  }
+  /** Rearranges array a so that a[0..k-1] holds its k smallest elements
+   * in sorted order, in O(n + k log k) expected time; the order of the
+   * other elements is unspecified.  Not stable.
+   * @throws IllegalArgumentException if k is negative or greater than
+   * the length of a */
+  public static <E> void partialSort(E[] a, Comparator<E> c, int k) {
+    checkRank(a.length + 1, k);
+    if (k == 0) return;
+    nthElement(a, c, k - 1);
+    introSort(a, c, 0, k - 1);
+  }
+  /** Returns the k smallest elements of an iterable collection in
+   * sorted order, taking them in one pass and O(k) memory with a {@link
+   * TopKCollector}; equal elements keep their order. */
+  public static <E> PositionList<E> topK(Iterable<? extends E> elements,
+					 Comparator<E> c, int k) {
+    TopKCollector<E> top = new TopKCollector<E>(k, c);
+    top.addAll(elements);
+    return top.toSortedList();
+  }
+  /** Rearranges an int array so that a[k] holds the element of rank k,
+   * as nthElement(E[], Comparator, int). */
+  public static void nthElement(int[] a, int k) {
+    checkRank(a.length, k);
+    int lo = 0, hi = a.length, depth = 2 * log2(Math.max(1, a.length));
+    while (hi - lo > INSERTION_CUTOFF) {
+      if (depth-- == 0) break;
+      int mid = (lo + hi) >>> 1, step = (hi - lo) / 8;
+      int pivot = median3(a[lo], a[mid], a[hi-1]);
+      if (hi - lo > NINTHER_CUTOFF)
+	pivot = median3(median3(a[lo], a[lo+step], a[lo+2*step]),
+			median3(a[mid-step], pivot, a[mid+step]),
+			median3(a[hi-1-2*step], a[hi-1-step], a[hi-1]));
+      int lt = lo, i = lo, gt = hi;
+      while (i < gt) {
+	int x = a[i];
+	if (x < pivot) { a[i++] = a[lt]; a[lt++] = x; }
+	else if (x > pivot) { a[i] = a[--gt]; a[gt] = x; }
+	else i++;
+      }
+      if (k < lt) hi = lt;
+      else if (k >= gt) lo = gt;
+      else return;
+    }
+    Arrays.sort(a, lo, hi);
+  }
+  /** Rearranges a long array so that a[k] holds the element of rank k,
+   * as nthElement(E[], Comparator, int). */
+  public static void nthElement(long[] a, int k) {
+    checkRank(a.length, k);
+    int lo = 0, hi = a.length, depth = 2 * log2(Math.max(1, a.length));
+    while (hi - lo > INSERTION_CUTOFF) {
+      if (depth-- == 0) break;
+      int mid = (lo + hi) >>> 1, step = (hi - lo) / 8;
+      long pivot = median3(a[lo], a[mid], a[hi-1]);
+      if (hi - lo > NINTHER_CUTOFF)
+	pivot = median3(median3(a[lo], a[lo+step], a[lo+2*step]),
+			median3(a[mid-step], pivot, a[mid+step]),
+			median3(a[hi-1-2*step], a[hi-1-step], a[hi-1]));
+      int lt = lo, i = lo, gt = hi;
+      while (i < gt) {
+	long x = a[i];
+	if (x < pivot) { a[i++] = a[lt]; a[lt++] = x; }
+	else if (x > pivot) { a[i] = a[--gt]; a[gt] = x; }
+	else i++;
+      }
+      if (k < lt) hi = lt;
+      else if (k >= gt) lo = gt;
+      else return;
+    }
+    Arrays.sort(a, lo, hi);
+  }
+  /** Rearranges a double array so that a[k] holds the element of rank
+   * k in the order of Arrays.sort(double[]), as nthElement(E[],
+   * Comparator, int). */
+  public static void nthElement(double[] a, int k) {
+    checkRank(a.length, k);
+    int lo = 0, hi = a.length, depth = 2 * log2(Math.max(1, a.length));
+    while (hi - lo > INSERTION_CUTOFF) {
+      if (depth-- == 0) break;
+      int mid = (lo + hi) >>> 1, step = (hi - lo) / 8;
+      double pivot = median3(a[lo], a[mid], a[hi-1]);
+      if (hi - lo > NINTHER_CUTOFF)
+	pivot = median3(median3(a[lo], a[lo+step], a[lo+2*step]),
+			median3(a[mid-step], pivot, a[mid+step]),
+			median3(a[hi-1-2*step], a[hi-1-step], a[hi-1]));
+      int lt = lo, i = lo, gt = hi;
+      while (i < gt) {
+	double x = a[i];
+	int cmp = Double.compare(x, pivot); // orders -0.0 and NaN
+	if (cmp < 0) { a[i++] = a[lt]; a[lt++] = x; }
+	else if (cmp > 0) { a[i] = a[--gt]; a[gt] = x; }
+	else i++;
+      }
+      if (k < lt) hi = lt;
+      else if (k >= gt) lo = gt;
+      else return;
+    }
+    Arrays.sort(a, lo, hi);
+  }
+  /** Rearranges an int array so that a[0..k-1] holds its k smallest
+   * elements in sorted order. */
+  public static void partialSort(int[] a, int k) {
+    checkRank(a.length + 1, k);
+    if (k == 0) return;
+    nthElement(a, k - 1);
+    Arrays.sort(a, 0, k - 1);
+  }
+  /** Rearranges a long array so that a[0..k-1] holds its k smallest
+   * elements in sorted order. */
+  public static void partialSort(long[] a, int k) {
+    checkRank(a.length + 1, k);
+    if (k == 0) return;
+    nthElement(a, k - 1);
+    Arrays.sort(a, 0, k - 1);
+  }
+  /** Rearranges a double array so that a[0..k-1] holds its k smallest
+   * elements in sorted order. */
+  public static void partialSort(double[] a, int k) {
+    checkRank(a.length + 1, k);
+    if (k == 0) return;
+    nthElement(a, k - 1);
+    Arrays.sort(a, 0, k - 1);
+  }
+  /** Throws an exception unless 0 <= k < n. */
+  private static void checkRank(int n, int k) {
+    if (k < 0 || k >= n)
+      throw new IllegalArgumentException("Rank out of range: " + k);
+  }
+  private static int median3(int x, int y, int z) {
+    return (x < y) ? ((y < z) ? y : Math.max(x, z))
+		   : ((x < z) ? x : Math.max(y, z));
+  }
+  private static long median3(long x, long y, long z) {
+    return (x < y) ? ((y < z) ? y : Math.max(x, z))
+		   : ((x < z) ? x : Math.max(y, z));
+  }
+  private static double median3(double x, double y, double z) {
+    if (Double.compare(x, y) < 0) {
+      if (Double.compare(y, z) < 0) return y;
+      return (Double.compare(x, z) < 0) ? z : x;
+    }
+    if (Double.compare(x, z) < 0) return x;
+    return (Double.compare(y, z) < 0) ? z : y;
+  }
+
+  /** Primitive arrays with fewer elements than this are insertion
+   * sorted instead of radix sorted. */
+  protected static final int RADIX_CUTOFF = 64;
+
+  /**
+   * Sorts an int array in nondecreasing order with an LSD radix sort on
+   * bytes, in O(n) time and with an n-element buffer.  Nothing is boxed
+   * and no comparator is called; a pass is skipped when all the keys
+   * have the same byte in it, as when small keys are sorted.
+   **/
+  public static void radixSort(int[] a) {
+    radixSort(a, null);
+  }
+  /** Sorts a long array in nondecreasing order with an LSD radix sort
+   * on bytes, as radixSort(int[]). */
+  public static void radixSort(long[] a) {
+    radixSort(a, null, true);
+  }
+  /** Sorts a double array in the order of Arrays.sort(double[]):
+   * -0.0 comes before 0.0 and all NaNs come last.  The doubles are
+   * mapped to longs whose unsigned order is that order, which are
+   * radix sorted and mapped back; NaNs come out as the canonical NaN. */
+  public static void radixSort(double[] a) {
+    long[] k = sortableBits(a);
+    radixSort(k, null, false);
+    for (int i = 0; i < k.length; i++)
+      a[i] = fromSortableBits(k[i]);
+  }
+  /** Returns the permutation that sorts an int array stably: a[p[0]],
+   * a[p[1]], ... is nondecreasing, and equal keys keep the order of
+   * their indices.  The array itself is not changed. */
+  public static int[] argSort(int[] a) {
+    int[] p = identity(a.length);
+    radixSort(a.clone(), p);
+    return p;
+  }
+  /** Returns the permutation that sorts a long array stably. */
+  public static int[] argSort(long[] a) {
+    int[] p = identity(a.length);
+    radixSort(a.clone(), p, true);
+    return p;
+  }
+  /** Returns the permutation that sorts a double array stably, in the
+   * order of radixSort(double[]). */
+  public static int[] argSort(double[] a) {
+    int[] p = identity(a.length);
+    radixSort(sortableBits(a), p, false);
+    return p;
+  }
+
+  /** Radix sorts a as signed ints, moving the elements of p, if not
+   * null, along with the keys. */
+  private static void radixSort(int[] a, int[] p) {
+    int n = a.length;
+    if (n < RADIX_CUTOFF) {
+      insertionSort(a, p);
+      return;
+    }
+    int[][] count = new int[4][257];
+    for (int i = 0; i < n; i++) { // all the histograms in one pass
+      int x = a[i];
+      count[0][(x & 0xff) + 1]++;
+      count[1][((x >>> 8) & 0xff) + 1]++;
+      count[2][((x >>> 16) & 0xff) + 1]++;
+      count[3][((x >>> 24) ^ 0x80) + 1]++; // negative keys first
+    }
+    int[] keys = a, perm = p;
+    int[] a2 = new int[n];
+    int[] p2 = (p == null) ? null : new int[n];
+    for (int d = 0; d < 4; d++) {
+      int[] c = count[d];
+      if (!startOffsets(c, n)) continue; // all keys have the same byte
+      int shift = 8*d, flip = (d == 3) ? 0x80 : 0;
+      for (int i = 0; i < n; i++) {
+	int to = c[((keys[i] >>> shift) & 0xff) ^ flip]++;
+	a2[to] = keys[i];
+	if (p != null) p2[to] = perm[i];
+      }
+      int[] t = keys; keys = a2; a2 = t;
+      if (p != null) { t = perm; perm = p2; p2 = t; }
+    }
+    if (keys != a) { // the result is in the buffer
+      System.arraycopy(keys, 0, a, 0, n);
+      if (p != null) System.arraycopy(perm, 0, p, 0, n);
+    }
+  }
+  /** Radix sorts a as signed or unsigned longs, moving the elements of
+   * p, if not null, along with the keys. */
+  private static void radixSort(long[] a, int[] p, boolean signed) {
+    int n = a.length;
+    if (n < RADIX_CUTOFF) {
+      insertionSort(a, p, signed);
+      return;
+    }
+    int flip = signed ? 0x80 : 0; // sorts negative keys first
+    int[][] count = new int[8][257];
+    for (int i = 0; i < n; i++) {
+      long x = a[i];
+      for (int d = 0; d < 7; d++)
+	count[d][(int) ((x >>> (8*d)) & 0xff) + 1]++;
+      count[7][(int) ((x >>> 56) ^ flip) + 1]++;
+    }
+    long[] keys = a, a2 = new long[n];
+    int[] perm = p, p2 = (p == null) ? null : new int[n];
+    for (int d = 0; d < 8; d++) {
+      int[] c = count[d];
+      if (!startOffsets(c, n)) continue;
+      int shift = 8*d, fl = (d == 7) ? flip : 0;
+      for (int i = 0; i < n; i++) {
+	int to = c[(int) ((keys[i] >>> shift) & 0xff) ^ fl]++;
+	a2[to] = keys[i];
+	if (p != null) p2[to] = perm[i];
+      }
+      long[] t = keys; keys = a2; a2 = t;
+      if (p != null) { int[] tp = perm; perm = p2; p2 = tp; }
+    }
+    if (keys != a) {
+      System.arraycopy(keys, 0, a, 0, n);
+      if (p != null) System.arraycopy(perm, 0, p, 0, n);
+    }
+  }
+  /** Turns the counts of a digit, held at c[b+1] for byte b, into the
+   * start offsets of the buckets, held at c[b].  Returns false instead
+   * if one bucket holds all n keys, so the pass can be skipped. */
+  private static boolean startOffsets(int[] c, int n) {
+    for (int b = 1; b <= 256; b++)
+      if (c[b] == n) return false;
+    for (int b = 1; b <= 256; b++)
+      c[b] += c[b-1];
+    return true;
+  }
+  /** Sorts a small int array by insertion sort, moving the elements of
+   * p, if not null, along with the keys. */
+  private static void insertionSort(int[] a, int[] p) {
+    for (int i = 1; i < a.length; i++) {
+      int x = a[i], j = i - 1;
+      int px = (p == null) ? 0 : p[i];
+      for (; j >= 0 && a[j] > x; j--) {
+	a[j+1] = a[j];
+	if (p != null) p[j+1] = p[j];
+      }
+      a[j+1] = x;
+      if (p != null) p[j+1] = px;
+    }
+  }
+  /** Sorts a small long array by insertion sort as signed or unsigned
+   * longs, moving the elements of p, if not null, along with the keys. */
+  private static void insertionSort(long[] a, int[] p, boolean signed) {
+    long bias = signed ? 0 : Long.MIN_VALUE; // unsigned order by biasing
+    for (int i = 1; i < a.length; i++) {
+      long x = a[i];
+      int j = i - 1, px = (p == null) ? 0 : p[i];
+      for (; j >= 0 && (a[j] ^ bias) > (x ^ bias); j--) {
+	a[j+1] = a[j];
+	if (p != null) p[j+1] = p[j];
+      }
+      a[j+1] = x;
+      if (p != null) p[j+1] = px;
+    }
+  }
+  /** Returns the longs whose unsigned order is the order of the given
+   * doubles: the sign bit of a nonnegative double is set, and all the
+   * bits of a negative one are flipped. */
+  private static long[] sortableBits(double[] a) {
+    long[] k = new long[a.length];
+    for (int i = 0; i < a.length; i++) {
+      long bits = Double.doubleToLongBits(a[i]); // NaNs made canonical
+      k[i] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+    return k;
+  }
+  /** Inverts sortableBits for one key. */
+  private static double fromSortableBits(long k) {
+    return Double.longBitsToDouble((k < 0) ? k ^ Long.MIN_VALUE : ~k);
+  }
+  /** Returns the identity permutation of length n. */
+  private static int[] identity(int n) {
+    int[] p = new int[n];
+    for (int i = 0; i < n; i++) p[i] = i;
+    return p;
+  }
+
   public static void main (String[] argv) throws IOException {
     out("Start your engines...");
     BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
@@ -0,0 +1,542 @@
+package net.datastructures;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmarks for the sorting algorithms of {@link Sort}.  The first
+ * argument names the benchmark to run and the remaining arguments are
+ * its parameters:
+ *
+ * <pre>
+ *   parallel [n] [maxThreads]   mergeSort against parallelMergeSort on
+ *                               pools of 1, 2, 4, ... maxThreads threads
+ *   adversarial [n] [quickN]    quickSort, introSort and mergeSort on
+ *                               random, sorted, reversed, organ pipe and
+ *                               duplicate-heavy inputs; quickSort runs on
+ *                               quickN elements only
+ *   radix [n]                   radixSort and argSort of int, long and
+ *                               double keys against mergeSort and
+ *                               Arrays.sort of the same keys
+ *   adaptive [n] [batches]      mergeSort against adaptiveMergeSort on
+ *                               presorted inputs and on random input
+ *   external [n] [budgetKB] [fanIn]
+ *                               external sort of a file of n random long
+ *                               records with the given memory budget
+ *   list [n]                    mergeSort and quickSort of a PositionList
+ *                               against NodePositionList.sort
+ *   select [n]                  nthElement, partialSort and TopKCollector
+ *                               against a full sort truncated to k
+ *   sample [n]                  parallelSampleSort against
+ *                               parallelMergeSort on 1, 4, 8 and 16 threads
+ *   keys [n]                    sorting records by a parsed key with a
+ *                               parsing comparator and with the key-caching
+ *                               sorts, counting comparisons and parses
+ * </pre>
+ */
+public class SortBenchmark {
+  public static void main(String[] argv) throws java.io.IOException {
+    String which = (argv.length > 0) ? argv[0] : "parallel";
+    if (which.equals("parallel"))
+      parallel(intArg(argv, 1, 4000000),
+	       intArg(argv, 2, Runtime.getRuntime().availableProcessors()));
+    else if (which.equals("adversarial"))
+      adversarial(intArg(argv, 1, 1000000), intArg(argv, 2, 20000));
+    else if (which.equals("radix"))
+      radix(intArg(argv, 1, 2000000));
+    else if (which.equals("adaptive"))
+      adaptive(intArg(argv, 1, 2000000), intArg(argv, 2, 8));
+    else if (which.equals("external"))
+      external(intArg(argv, 1, 4000000), intArg(argv, 2, 16384),
+	       intArg(argv, 3, ExternalSort.DEFAULT_MAX_FAN_IN));
+    else if (which.equals("list"))
+      list(intArg(argv, 1, 1000000));
+    else if (which.equals("select"))
+      select(intArg(argv, 1, 2000000));
+    else if (which.equals("sample"))
+      sample(intArg(argv, 1, 4000000));
+    else if (which.equals("keys"))
+      keys(intArg(argv, 1, 1000000));
+    else
+      out("Unknown benchmark: " + which);
+  }
+
+  /** Times the sequential array merge sort and the parallel merge sort
+   * with pools of increasing size on the same random input.  The
+   * speedup is bounded by the number of available processors. */
+  public static void parallel(int n, int maxThreads) {
+    out(Runtime.getRuntime().availableProcessors() + " processors available");
+    Integer[] input = randomIntegers(n, 42);
+    Comparator<Integer> c = new DefaultComparator<Integer>();
+    Object[] scratch = new Object[n];
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      Integer[] a = input.clone();
+      long t = System.nanoTime();
+      Sort.mergeSort(a, c);
+      long base = ms(t);
+      out("  mergeSort                    " + base + " ms");
+      for (int p = 1; p <= maxThreads; p *= 2) {
+	ForkJoinPool pool = new ForkJoinPool(p);
+	a = input.clone();
+	t = System.nanoTime();
+	Sort.parallelMergeSort(a, c, pool, scratch);
+	long time = ms(t);
+	pool.shutdown();
+	check(a, c);
+	out("  parallelMergeSort " + pad(p) + " threads " + time + " ms"
+	    + "  (speedup " + ratio(base, time) + ")");
+      }
+    }
+  }
+
+  /** Names of the input shapes made by {@link #shaped}. */
+  protected static final String[] SHAPES = { "random     ", "sorted     ",
+    "reversed   ", "organ pipe ", "all equal  ", "4 distinct ", "sawtooth   " };
+
+  /** Times the quick sorts on inputs that are easy for merge sort but
+   * degrade a quick sort pivoting on the last element to quadratic time
+   * and linear recursion depth.  The plain quickSort runs on the smaller
+   * size, and a stack overflow is reported instead of a time. */
+  public static void adversarial(int n, int quickN) {
+    Comparator<Integer> c = new DefaultComparator<Integer>();
+    for (int round = 0; round < 2; round++) {
+      out("round " + round + ": quickSort at n=" + quickN
+	  + ", the others at n=" + n);
+      for (int shape = 0; shape < SHAPES.length; shape++) {
+	Integer[] small = shaped(shape, quickN);
+	Integer[] large = shaped(shape, n);
+	String quick;
+	try {
+	  quick = timeQuickSort(small, c) + " ms";
+	} catch (StackOverflowError e) {
+	  quick = "stack overflow";
+	}
+	Integer[] a = large.clone();
+	long t = System.nanoTime();
+	Sort.introSort(a, c);
+	long intro = ms(t);
+	check(a, c);
+	a = large.clone();
+	t = System.nanoTime();
+	Sort.mergeSort(a, c);
+	out("  " + SHAPES[shape] + " quickSort " + quick + ", introSort "
+	    + intro + " ms, mergeSort " + ms(t) + " ms");
+      }
+    }
+  }
+  private static long timeQuickSort(Integer[] input, Comparator<Integer> c) {
+    Integer[] a = input.clone();
+    long t = System.nanoTime();
+    Sort.quickSort(a, c);
+    long time = ms(t);
+    check(a, c);
+    return time;
+  }
+  /** Returns an input of n Integers of the given shape. */
+  protected static Integer[] shaped(int shape, int n) {
+    if (shape == 0) return randomIntegers(n, 42);
+    Integer[] a = new Integer[n];
+    for (int i = 0; i < n; i++)
+      switch (shape) {
+      case 1: a[i] = i; break;
+      case 2: a[i] = n - i; break;
+      case 3: a[i] = Math.min(i, n - i); break;
+      case 4: a[i] = 7; break;
+      case 5: a[i] = i % 4; break;
+      default: a[i] = i % 1000; break;
+      }
+    return a;
+  }
+  /** Times the primitive radix sorts and argSorts against mergeSort of
+   * the boxed keys, with boxing done outside the timing, and against
+   * Arrays.sort of the primitive keys for reference.  The long keys look
+   * like millisecond timestamps of one year, which share their top
+   * bytes. */
+  public static void radix(int n) {
+    Random r = new Random(42);
+    int[] ints = new int[n];
+    long[] longs = new long[n];
+    double[] doubles = new double[n];
+    long now = 1700000000000L;
+    for (int i = 0; i < n; i++) {
+      ints[i] = r.nextInt();
+      longs[i] = now + (long) (r.nextDouble() * 365 * 24 * 3600 * 1000);
+      doubles[i] = r.nextGaussian() * 1000;
+    }
+    Integer[] boxedInts = new Integer[n];
+    Long[] boxedLongs = new Long[n];
+    Double[] boxedDoubles = new Double[n];
+    for (int i = 0; i < n; i++) {
+      boxedInts[i] = ints[i];
+      boxedLongs[i] = longs[i];
+      boxedDoubles[i] = doubles[i];
+    }
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      int[] a = ints.clone();
+      long t = System.nanoTime();
+      Sort.radixSort(a);
+      long radix = ms(t);
+      t = System.nanoTime();
+      int[] p = Sort.argSort(ints);
+      long arg = ms(t);
+      long merge = timeMergeSort(boxedInts);
+      a = ints.clone();
+      t = System.nanoTime();
+      java.util.Arrays.sort(a);
+      report("int   ", radix, arg, merge, ms(t));
+      long[] b = longs.clone();
+      t = System.nanoTime();
+      Sort.radixSort(b);
+      radix = ms(t);
+      t = System.nanoTime();
+      p = Sort.argSort(longs);
+      arg = ms(t);
+      merge = timeMergeSort(boxedLongs);
+      b = longs.clone();
+      t = System.nanoTime();
+      java.util.Arrays.sort(b);
+      report("long  ", radix, arg, merge, ms(t));
+      double[] d = doubles.clone();
+      t = System.nanoTime();
+      Sort.radixSort(d);
+      radix = ms(t);
+      t = System.nanoTime();
+      p = Sort.argSort(doubles);
+      arg = ms(t);
+      merge = timeMergeSort(boxedDoubles);
+      d = doubles.clone();
+      t = System.nanoTime();
+      java.util.Arrays.sort(d);
+      report("double", radix, arg, merge, ms(t));
+    }
+  }
+  private static <E extends Comparable<E>> long timeMergeSort(E[] boxed) {
+    E[] a = boxed.clone();
+    long t = System.nanoTime();
+    Sort.mergeSort(a, new DefaultComparator<E>());
+    return ms(t);
+  }
+  private static void report(String type, long radix, long arg, long merge,
+			     long arrays) {
+    out("  " + type + "  radixSort " + radix + " ms, argSort " + arg
+	+ " ms, boxed mergeSort " + merge + " ms, Arrays.sort " + arrays
+	+ " ms");
+  }
+  /** Times the array merge sort and the adaptive merge sort, and counts
+   * their comparisons, on sorted and reversed input, on input made of
+   * sorted batches appended to each other, on sorted input with 1% of
+   * the elements swapped at random, and on random input. */
+  public static void adaptive(int n, int batches) {
+    String[] names = { "sorted         ", "reversed       ",
+		       "appended      ", "1% swapped     ", "random         " };
+    names[2] = pad(batches) + " batches     ";
+    Integer[][] inputs = new Integer[names.length][];
+    inputs[0] = shaped(1, n);
+    inputs[1] = shaped(2, n);
+    inputs[2] = new Integer[n];
+    Random r = new Random(42);
+    int batch = (n + batches - 1) / batches;
+    for (int i = 0; i < n; i++) // batches covering overlapping key ranges
+      inputs[2][i] = (i % batch) * batches + r.nextInt(batches * 4);
+    for (int b = 0; b < batches; b++)
+      java.util.Arrays.sort(inputs[2], b*batch, Math.min(n, (b+1)*batch));
+    inputs[3] = shaped(1, n);
+    for (int i = 0; i < n / 200; i++)
+      Sort.swap(inputs[3], r.nextInt(n), r.nextInt(n));
+    inputs[4] = randomIntegers(n, 42);
+    final long[] count = new long[1];
+    Comparator<Integer> c = new Comparator<Integer>() {
+      public int compare(Integer a, Integer b) {
+	count[0]++;
+	return a.compareTo(b);
+      }
+    };
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int i = 0; i < inputs.length; i++) {
+	Integer[] a = inputs[i].clone();
+	count[0] = 0;
+	long t = System.nanoTime();
+	Sort.mergeSort(a, c);
+	long merge = ms(t), mergeCount = count[0];
+	a = inputs[i].clone();
+	count[0] = 0;
+	t = System.nanoTime();
+	Sort.adaptiveMergeSort(a, c);
+	long adaptive = ms(t), adaptiveCount = count[0];
+	check(a, c);
+	out("  " + names[i] + " mergeSort " + merge + " ms, "
+	    + mergeCount + " compares;  adaptiveMergeSort " + adaptive
+	    + " ms, " + adaptiveCount + " compares");
+      }
+    }
+  }
+  /** Times getting the k smallest of n random keys, for k from 10 to
+   * n/20: by a full sort, by partialSort, by streaming the keys through
+   * a TopKCollector, and for the median alone by nthElement; the same
+   * for int keys against Arrays.sort and radixSort. */
+  public static void select(int n) {
+    Comparator<Integer> c = new DefaultComparator<Integer>();
+    Integer[] keys = randomIntegers(n, 42);
+    int[] ints = new int[n];
+    for (int i = 0; i < n; i++) ints[i] = keys[i];
+    java.util.List<Integer> stream = java.util.Arrays.asList(keys);
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      Integer[] a = keys.clone();
+      long t = System.nanoTime();
+      Sort.introSort(a, c);
+      long full = ms(t);
+      int[] b = ints.clone();
+      t = System.nanoTime();
+      Sort.radixSort(b);
+      long fullInts = ms(t);
+      for (int k = 10; k <= n / 20; k *= 100) {
+	a = keys.clone();
+	t = System.nanoTime();
+	Sort.partialSort(a, c, k);
+	long partial = ms(t);
+	t = System.nanoTime();
+	PositionList<Integer> top = Sort.topK(stream, c, k);
+	long collector = ms(t);
+	b = ints.clone();
+	t = System.nanoTime();
+	Sort.partialSort(b, k);
+	out("  k=" + k + "  introSort " + full + " ms, partialSort " + partial
+	    + " ms, topK " + collector + " ms;  int[]: radixSort " + fullInts
+	    + " ms, partialSort " + ms(t) + " ms  (" + top.last().element()
+	    + ")");
+      }
+      a = keys.clone();
+      t = System.nanoTime();
+      Sort.nthElement(a, c, n / 2);
+      long median = ms(t);
+      b = ints.clone();
+      t = System.nanoTime();
+      Sort.nthElement(b, n / 2);
+      out("  median  nthElement " + median + " ms;  int[]: nthElement "
+	  + ms(t) + " ms  (" + a[n/2] + ")");
+    }
+  }
+  /** Times the list sorts of Sort, which move every element into new
+   * lists, against sorting a NodePositionList by relinking its nodes,
+   * on random and on sorted input, and reports the bytes allocated.
+   * The quick sort pivots on the last element and is run on random
+   * input only. */
+  public static void list(int n) {
+    Comparator<Integer> c = new DefaultComparator<Integer>();
+    Integer[] random = randomIntegers(n, 42), sorted = shaped(1, n);
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int input = 0; input < 2; input++) {
+	Integer[] keys = (input == 0) ? random : sorted;
+	String name = (input == 0) ? "random" : "sorted";
+	for (int algorithm = 0; algorithm < 3; algorithm++) {
+	  if (input == 1 && algorithm == 1) continue;
+	  NodePositionList<Integer> l = new NodePositionList<Integer>();
+	  for (Integer k : keys) l.addLast(k);
+	  long bytes = PriorityQueueBenchmark.allocatedBytes();
+	  long t = System.nanoTime();
+	  String label;
+	  if (algorithm == 0) {
+	    Sort.mergeSort(l, c);
+	    label = "Sort.mergeSort         ";
+	  }
+	  else if (algorithm == 1) {
+	    Sort.quickSort(l, c);
+	    label = "Sort.quickSort         ";
+	  }
+	  else {
+	    l.sort(c);
+	    label = "NodePositionList.sort  ";
+	  }
+	  long time = ms(t);
+	  bytes = PriorityQueueBenchmark.allocatedBytes() - bytes;
+	  out("  " + name + "  " + label + time + " ms, "
+	      + (bytes >> 20) + " MB allocated  (first " + l.first().element()
+	      + ")");
+	}
+      }
+    }
+  }
+  /** Writes n random long records to a temporary file and sorts it
+   * externally with the given budget and fan-in, then checks the output
+   * and compares with sorting the same records in memory. */
+  public static void external(int n, int budgetKB, int fanIn)
+    throws java.io.IOException {
+    java.io.File input = java.io.File.createTempFile("input", ".rec");
+    java.io.File output = java.io.File.createTempFile("output", ".rec");
+    input.deleteOnExit();
+    output.deleteOnExit();
+    LongCodec codec = new LongCodec();
+    Random r = new Random(42);
+    Long[] records = new Long[n];
+    ExternalSort.RecordWriter<Long> w = new ExternalSort.RecordWriter<Long>(
+      input, codec, ExternalSort.DEFAULT_BUFFER_SIZE);
+    for (int i = 0; i < n; i++)
+      w.write(records[i] = r.nextLong());
+    w.close();
+    out("input " + (input.length() >> 20) + " MB, budget " + budgetKB
+	+ " KB, fan-in " + fanIn);
+    Comparator<Long> c = new DefaultComparator<Long>();
+    ExternalSort<Long> sorter =
+      new ExternalSort<Long>(codec, c, budgetKB * 1024L);
+    sorter.setMaxFanIn(fanIn);
+    for (int round = 0; round < 3; round++) {
+      long t = System.nanoTime();
+      sorter.sort(input, output);
+      long time = ms(t);
+      ExternalSort.RecordReader<Long> in = new ExternalSort.RecordReader<Long>(
+	output, codec, ExternalSort.DEFAULT_BUFFER_SIZE);
+      Long[] a = records.clone();
+      t = System.nanoTime();
+      Sort.adaptiveMergeSort(a, c);
+      long memory = ms(t);
+      for (int i = 0; i < n; i++)
+	if (!a[i].equals(in.read()))
+	  throw new IllegalStateException("Wrong record at index " + i);
+      if (in.read() != null)
+	throw new IllegalStateException("Too many records");
+      in.close();
+      out("round " + round + ": external sort " + time + " ms, "
+	  + sorter.runCount() + " runs, " + sorter.mergePassCount()
+	  + " merge passes;  in memory " + memory + " ms");
+    }
+  }
+  /** Codec of long records as 8 bytes. */
+  protected static class LongCodec implements RecordCodec<Long> {
+    public byte[] encode(Long x) {
+      return java.nio.ByteBuffer.allocate(8).putLong(x).array();
+    }
+    public Long decode(byte[] b, int off, int len) {
+      return java.nio.ByteBuffer.wrap(b, off, len).getLong();
+    }
+  }
+  /** Times the parallel sample sort and the parallel merge sort on
+   * pools of 1, 4, 8 and 16 threads, on random keys and on keys with
+   * only 16 distinct values, against the sequential adaptive merge
+   * sort.  The speedup is bounded by the number of available
+   * processors. */
+  public static void sample(int n) {
+    out(Runtime.getRuntime().availableProcessors() + " processors available");
+    Comparator<Integer> c = new DefaultComparator<Integer>();
+    Integer[] random = randomIntegers(n, 42);
+    Integer[] duplicated = new Integer[n];
+    for (int i = 0; i < n; i++) duplicated[i] = random[i] & 15;
+    int[] threads = { 1, 4, 8, 16 };
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int input = 0; input < 2; input++) {
+	Integer[] keys = (input == 0) ? random : duplicated;
+	out("  " + ((input == 0) ? "random keys" : "16 distinct keys"));
+	Integer[] a = keys.clone();
+	long t = System.nanoTime();
+	Sort.adaptiveMergeSort(a, c);
+	long base = ms(t);
+	out("    adaptiveMergeSort           " + base + " ms");
+	for (int p : threads) {
+	  ForkJoinPool pool = new ForkJoinPool(p);
+	  a = keys.clone();
+	  t = System.nanoTime();
+	  Sort.parallelSampleSort(a, c, pool);
+	  long sample = ms(t);
+	  check(a, c);
+	  a = keys.clone();
+	  t = System.nanoTime();
+	  Sort.parallelMergeSort(a, c, pool);
+	  long merge = ms(t);
+	  pool.shutdown();
+	  out("    " + pad(p) + " threads  parallelSampleSort " + sample
+	      + " ms (speedup " + ratio(base, sample) + "), parallelMergeSort "
+	      + merge + " ms (speedup " + ratio(base, merge) + ")");
+	}
+      }
+    }
+  }
+  /** Number of keys parsed by {@link #parseKey}. */
+  protected static long parses;
+
+  /** Sorts records of the form "id=NUMBER;..." by their number with a
+   * comparator that parses both keys on every comparison, as mergeSort,
+   * introSort and quickSort call it, and with sortByKey and
+   * sortByIntKey, which parse each key once. */
+  public static void keys(int n) {
+    Random r = new Random(42);
+    String[] records = new String[n];
+    for (int i = 0; i < n; i++)
+      records[i] = "id=" + r.nextInt(Integer.MAX_VALUE) + ";name=record" + i;
+    CountingComparator<String> parsing = new CountingComparator<String>(
+      new Comparator<String>() {
+	public int compare(String x, String y) {
+	  return Integer.compare(parseKey(x), parseKey(y));
+	}
+      });
+    CountingComparator<Integer> keys = new CountingComparator<Integer>();
+    java.util.function.Function<String,Integer> key =
+      new java.util.function.Function<String,Integer>() {
+	public Integer apply(String s) { return parseKey(s); }
+      };
+    java.util.function.ToIntFunction<String> intKey =
+      new java.util.function.ToIntFunction<String>() {
+	public int applyAsInt(String s) { return parseKey(s); }
+      };
+    for (int round = 0; round < 3; round++) {
+      out("round " + round);
+      for (int algorithm = 0; algorithm < 5; algorithm++) {
+	String[] a = records.clone();
+	parsing.reset();
+	keys.reset();
+	parses = 0;
+	String label;
+	long t = System.nanoTime();
+	switch (algorithm) {
+	case 0: Sort.mergeSort(a, parsing); label = "mergeSort    "; break;
+	case 1: Sort.introSort(a, parsing); label = "introSort    "; break;
+	case 2: Sort.quickSort(a, parsing); label = "quickSort    "; break;
+	case 3: Sort.sortByKey(a, key, keys); label = "sortByKey    "; break;
+	default: Sort.sortByIntKey(a, intKey); label = "sortByIntKey "; break;
+	}
+	long time = ms(t);
+	long compares = parsing.getCount() + keys.getCount();
+	out("  " + label + time + " ms, " + compares + " compares, " + parses
+	    + " parses  (" + parseKey(a[0]) + ")");
+      }
+    }
+  }
+  /** Returns the number after "id=" in a record. */
+  protected static int parseKey(String record) {
+    parses++;
+    return Integer.parseInt(record.substring(3, record.indexOf(';')));
+  }
+  /** Returns n random Integers made from the given seed. */
+  protected static Integer[] randomIntegers(int n, long seed) {
+    Random r = new Random(seed);
+    Integer[] a = new Integer[n];
+    for (int i = 0; i < n; i++) a[i] = r.nextInt();
+    return a;
+  }
+  /** Throws an exception if the array is not sorted. */
+  protected static <E> void check(E[] a, Comparator<E> c) {
+    for (int i = 1; i < a.length; i++)
+      if (c.compare(a[i-1], a[i]) > 0)
+	throw new IllegalStateException("Not sorted at index " + i);
+  }
+  private static String ratio(long base, long time) {
+    return String.format("%.2f", base / (double) Math.max(time, 1));
+  }
+  private static String pad(int p) {
+    return (p < 10) ? " " + p : String.valueOf(p);
+  }
+  /** Returns the milliseconds elapsed since the given nanoTime. */
+  protected static long ms(long start) {
+    return (System.nanoTime() - start) / 1000000;
+  }
+  protected static int intArg(String[] argv, int i, int def) {
+    return (argv.length > i) ? Integer.parseInt(argv[i]) : def;
+  }
+  private static void out(String s) {
+    System.out.println(s);
+  }
+}
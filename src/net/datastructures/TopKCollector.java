@@ -0,0 +1,134 @@
+package net.datastructures;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * Collector of the k smallest elements of a stream, according to a
+ * comparator, in one pass and O(k) memory.  The elements kept are held
+ * in a max-heap of fixed size k stored in an array, so an element
+ * larger than the largest one kept is rejected with one comparison and
+ * any other one replaces it in O(log k) time.
+ *
+ * <p>Among equal elements the earlier ones are kept, and the result
+ * lists equal elements in the order they arrived, so it is the first k
+ * elements of a stable sort of the stream.
+ *
+ * @see Sort#topK(Iterable, Comparator, int)
+ */
+public class TopKCollector<E> {
+  protected final Object[] heap;	// max-heap of the elements kept
+  protected final long[] seq;	// arrival number of each element kept
+  protected final int k;	// maximum number of elements kept
+  protected int size = 0;	// number of elements kept
+  protected long offered = 0;	// number of elements offered
+  protected Comparator<E> comp;
+  /** Creates a collector of the k smallest elements according to the
+   * given comparator.
+   * @throws IllegalArgumentException if k is negative */
+  public TopKCollector(int k, Comparator<E> c) {
+    if (k < 0)
+      throw new IllegalArgumentException("Negative k: " + k);
+    this.k = k;
+    heap = new Object[k];
+    seq = new long[k];
+    comp = c;
+  }
+  /** Returns the maximum number of elements kept. */
+  public int capacity() { return k; }
+  /** Returns the number of elements kept. */
+  public int size() { return size; }
+  /** Returns whether no element is kept. */
+  public boolean isEmpty() { return size == 0; }
+  /** Returns the largest element kept, which an offered element must
+   * be less than to be kept once the collector is full.
+   * @throws EmptyPriorityQueueException if no element is kept */
+  public E threshold() throws EmptyPriorityQueueException {
+    if (size == 0)
+      throw new EmptyPriorityQueueException("No element is kept");
+    return (E) heap[0];
+  }
+  /** Offers an element and returns whether it is kept for now. */
+  public boolean offer(E e) {
+    long s = offered++;
+    if (size < k) {	// not full: add the element at the bottom
+      upHeap(size++, e, s);
+      return true;
+    }
+    if (k == 0 || comp.compare(e, (E) heap[0]) >= 0)
+      return false;	// not smaller than the largest element kept
+    downHeap(0, e, s);	// replace the largest element kept
+    return true;
+  }
+  /** Offers all the elements of an iterable collection. */
+  public void addAll(Iterable<? extends E> elements) {
+    addAll(elements.iterator());
+  }
+  /** Offers all the remaining elements of an iterator. */
+  public void addAll(Iterator<? extends E> it) {
+    while (it.hasNext())
+      offer(it.next());
+  }
+  /** Returns the elements kept in nondecreasing order; the collector is
+   * not changed. */
+  public PositionList<E> toSortedList() {
+    Object[] h = heap.clone();
+    long[] s = seq.clone();
+    PositionList<E> result = new NodePositionList<E>();
+    for (int n = size; n > 0; n--) {	// heap sort, largest first
+      result.addFirst((E) h[0]);
+      E last = (E) h[n-1];
+      long lastSeq = s[n-1];
+      h[n-1] = null;
+      siftDown(h, s, n - 1, 0, last, lastSeq);
+    }
+    return result;
+  }
+  /** Removes all the elements kept. */
+  public void clear() {
+    java.util.Arrays.fill(heap, 0, size, null);
+    size = 0;
+    offered = 0;
+  }
+
+  /** Returns whether element x, which arrived as number sx, comes after
+   * element y, which arrived as number sy. */
+  protected boolean after(E x, long sx, E y, long sy) {
+    int c = comp.compare(x, y);
+    return c > 0 || (c == 0 && sx > sy);
+  }
+  /** Moves the hole at index i up until the given element fits in it. */
+  protected void upHeap(int i, E e, long s) {
+    while (i > 0) {
+      int p = (i - 1) / 2;
+      if (!after(e, s, (E) heap[p], seq[p])) break;
+      heap[i] = heap[p];
+      seq[i] = seq[p];
+      i = p;
+    }
+    heap[i] = e;
+    seq[i] = s;
+  }
+  /** Moves the hole at index i down until the given element fits in it. */
+  protected void downHeap(int i, E e, long s) {
+    siftDown(heap, seq, size, i, e, s);
+  }
+  /** Moves the hole at index i of the max-heap h[0..n-1] down until the
+   * given element fits in it. */
+  private void siftDown(Object[] h, long[] sq, int n, int i, E e, long s) {
+    while (true) {
+      int child = 2*i + 1;
+      if (child >= n) break;
+      if (child + 1 < n
+	  && after((E) h[child+1], sq[child+1], (E) h[child], sq[child]))
+	child++;
+      if (!after((E) h[child], sq[child], e, s)) break;
+      h[i] = h[child];
+      sq[i] = sq[child];
+      i = child;
+    }
+    if (i < n) {
+      h[i] = e;
+      sq[i] = s;
+    }
+  }
+}